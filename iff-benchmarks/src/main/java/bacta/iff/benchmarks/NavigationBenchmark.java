@@ -0,0 +1,53 @@
+package bacta.iff.benchmarks;
+
+import bacta.iff.Iff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entering and exiting a deep chain of nested forms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NavigationBenchmark {
+    @Param({"8", "64"})
+    private int depth;
+
+    private Iff iff;
+
+    @Setup
+    public void setup() {
+        iff = new Iff("deep", SyntheticIff.deep(depth));
+    }
+
+    @Benchmark
+    public int enterAndExitForms() {
+        for (int level = 0; level < depth; ++level)
+            iff.enterForm(SyntheticIff.ID_NEST);
+
+        iff.enterChunk(SyntheticIff.ID_DATA);
+        final int value = iff.readInt();
+        iff.exitChunk(SyntheticIff.ID_DATA);
+
+        for (int level = 0; level < depth; ++level)
+            iff.exitForm(SyntheticIff.ID_NEST);
+
+        iff.goToTopOfForm();
+        return value;
+    }
+}
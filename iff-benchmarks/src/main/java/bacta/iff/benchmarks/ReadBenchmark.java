@@ -0,0 +1,88 @@
+package bacta.iff.benchmarks;
+
+import bacta.iff.Iff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading every block and chunk payload of a file, from the bytes already in memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+    @Param({"human_male", "large"})
+    private String file;
+
+    private byte[] bytes;
+    private int[] values;
+
+    @Setup
+    public void setup() {
+        bytes = "large".equals(file)
+                ? SyntheticIff.large(1024, 8, 64)
+                : SyntheticIff.resource("human_male.iff");
+
+        values = new int[bytes.length / 4];
+    }
+
+    /**
+     * Visit every block, reading chunk payloads one int at a time.
+     */
+    @Benchmark
+    public void readScalar(final Blackhole blackhole) {
+        walk(new Iff(file, bytes), blackhole, false);
+    }
+
+    /**
+     * Visit every block, reading chunk payloads in bulk.
+     */
+    @Benchmark
+    public void readBulk(final Blackhole blackhole) {
+        walk(new Iff(file, bytes), blackhole, true);
+    }
+
+    @Benchmark
+    public Object buildIndex() {
+        return new Iff(file, bytes).buildIndex();
+    }
+
+    private void walk(final Iff iff, final Blackhole blackhole, final boolean bulk) {
+        while (!iff.isAtEndOfForm()) {
+            if (iff.isCurrentForm()) {
+                iff.enterForm();
+                walk(iff, blackhole, bulk);
+                iff.exitForm();
+            } else {
+                iff.enterChunk();
+
+                final int count = iff.getChunkLengthLeft() / 4;
+
+                if (bulk) {
+                    iff.readInts(values, 0, count);
+                    blackhole.consume(values);
+                } else {
+                    for (int index = 0; index < count; ++index)
+                        blackhole.consume(iff.readInt());
+                }
+
+                iff.exitChunk();
+            }
+        }
+    }
+}
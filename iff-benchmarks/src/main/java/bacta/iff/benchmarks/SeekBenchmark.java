@@ -0,0 +1,57 @@
+package bacta.iff.benchmarks;
+
+import bacta.iff.Iff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seeking to the last chunk of a wide form, with and without an index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeekBenchmark {
+    @Param({"100", "10000"})
+    private int width;
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private Iff iff;
+
+    @Setup
+    public void setup() {
+        iff = new Iff("wide", SyntheticIff.wide(width));
+
+        if (indexed)
+            iff.buildIndex();
+
+        iff.enterForm(SyntheticIff.ID_ROOT);
+    }
+
+    @Benchmark
+    public boolean seekChunk() {
+        iff.goToTopOfForm();
+        return iff.seekChunk(SyntheticIff.ID_LAST);
+    }
+
+    @Benchmark
+    public int countBlocks() {
+        iff.goToTopOfForm();
+        return iff.getNumberOfBlocksLeft();
+    }
+}
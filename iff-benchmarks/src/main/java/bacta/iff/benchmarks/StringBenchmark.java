@@ -0,0 +1,68 @@
+package bacta.iff.benchmarks;
+
+import bacta.iff.Iff;
+import bacta.iff.IffStringPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding chunks of template path strings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringBenchmark {
+    private static final int COUNT = 1024;
+
+    @Param({"false", "true"})
+    private boolean pooled;
+
+    private Iff iff;
+
+    @Setup
+    public void setup() {
+        iff = new Iff("strings", SyntheticIff.strings(COUNT));
+        iff.enterForm(SyntheticIff.ID_ROOT);
+
+        if (pooled)
+            iff.setStringPool(new IffStringPool());
+    }
+
+    @Benchmark
+    public void readString(final Blackhole blackhole) {
+        iff.goToTopOfForm();
+        iff.enterChunk(SyntheticIff.ID_ASCI);
+
+        for (int index = 0; index < COUNT; ++index)
+            blackhole.consume(iff.readString());
+
+        iff.exitChunk(SyntheticIff.ID_ASCI);
+    }
+
+    @Benchmark
+    public void readUnicode(final Blackhole blackhole) {
+        iff.goToTopOfForm();
+        iff.seekChunk(SyntheticIff.ID_UNIC);
+        iff.enterChunk(SyntheticIff.ID_UNIC);
+
+        for (int index = 0; index < COUNT; ++index)
+            blackhole.consume(iff.readUnicode());
+
+        iff.exitChunk(SyntheticIff.ID_UNIC);
+    }
+}
@@ -0,0 +1,143 @@
+package bacta.iff.benchmarks;
+
+import bacta.iff.Iff;
+import bacta.iff.IffWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds the Iff files used by the benchmarks.
+ */
+final class SyntheticIff {
+    static final int ID_ROOT = Iff.createChunkId("ROOT");
+    static final int ID_ITEM = Iff.createChunkId("ITEM");
+    static final int ID_NEST = Iff.createChunkId("NEST");
+    static final int ID_DATA = Iff.createChunkId("DATA");
+    static final int ID_LAST = Iff.createChunkId("LAST");
+    static final int ID_ASCI = Iff.createChunkId("ASCI");
+    static final int ID_UNIC = Iff.createChunkId("UNIC");
+
+    private SyntheticIff() {
+    }
+
+    /**
+     * Read a file bundled with the benchmarks.
+     */
+    static byte[] resource(final String name) {
+        try (final InputStream inputStream = SyntheticIff.class.getResourceAsStream("/" + name)) {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+
+            while ((count = inputStream.read(buffer)) != -1)
+                outputStream.write(buffer, 0, count);
+
+            return outputStream.toByteArray();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A root form of many item forms, each holding several chunks of ints.
+     */
+    static byte[] large(final int forms, final int chunksPerForm, final int intsPerChunk) {
+        final IffWriter writer = new IffWriter(forms * chunksPerForm * (intsPerChunk * 4 + 8) + forms * 12 + 12);
+        writer.insertForm(ID_ROOT);
+
+        for (int form = 0; form < forms; ++form) {
+            writer.insertForm(ID_ITEM);
+
+            for (int chunk = 0; chunk < chunksPerForm; ++chunk) {
+                writer.insertChunk(ID_DATA);
+
+                for (int value = 0; value < intsPerChunk; ++value)
+                    writer.insertChunkData(form ^ chunk ^ value);
+
+                writer.exitChunk(ID_DATA);
+            }
+
+            writer.exitForm(ID_ITEM);
+        }
+
+        writer.exitForm(ID_ROOT);
+        return writer.toByteArray();
+    }
+
+    /**
+     * A chain of nested forms, with a single chunk at the bottom.
+     */
+    static byte[] deep(final int depth) {
+        final IffWriter writer = new IffWriter();
+
+        for (int level = 0; level < depth; ++level)
+            writer.insertForm(ID_NEST);
+
+        writer.insertChunk(ID_DATA);
+        writer.insertChunkData(depth);
+        writer.exitChunk(ID_DATA);
+
+        for (int level = 0; level < depth; ++level)
+            writer.exitForm(ID_NEST);
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * A single form holding many data chunks followed by one last chunk.
+     */
+    static byte[] wide(final int width) {
+        final IffWriter writer = new IffWriter();
+        writer.insertForm(ID_ROOT);
+
+        for (int chunk = 0; chunk < width; ++chunk) {
+            writer.insertChunk(ID_DATA);
+            writer.insertChunkData(chunk);
+            writer.exitChunk(ID_DATA);
+        }
+
+        writer.insertChunk(ID_LAST);
+        writer.insertChunkData(width);
+        writer.exitChunk(ID_LAST);
+
+        writer.exitForm(ID_ROOT);
+        return writer.toByteArray();
+    }
+
+    /**
+     * A form holding a chunk of null terminated strings and a chunk of length prefixed UTF-16 strings, drawn from a
+     * small set of template paths so that a string pool sees repeats.
+     */
+    static byte[] strings(final int count) {
+        final IffWriter writer = new IffWriter();
+        writer.insertForm(ID_ROOT);
+
+        writer.insertChunk(ID_ASCI);
+
+        for (int index = 0; index < count; ++index)
+            writer.insertChunkData(path(index));
+
+        writer.exitChunk(ID_ASCI);
+
+        writer.insertChunk(ID_UNIC);
+
+        for (int index = 0; index < count; ++index) {
+            final byte[] bytes = path(index).getBytes(StandardCharsets.UTF_16LE);
+            writer.insertChunkData(bytes.length);
+            writer.insertChunkData(bytes, 0, bytes.length);
+        }
+
+        writer.exitChunk(ID_UNIC);
+
+        writer.exitForm(ID_ROOT);
+        return writer.toByteArray();
+    }
+
+    private static String path(final int index) {
+        return "object/creature/player/shared_species_" + (index % 32) + ".iff";
+    }
+}
@@ -0,0 +1,118 @@
+package bacta.iff.benchmarks;
+
+import bacta.iff.Iff;
+import bacta.iff.IffWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing chunk data, both into a buffer that is already large enough and into one that has to grow through
+ * {@link Iff#adjustDataAsNeeded(int)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+    @Param({"1024", "65536"})
+    private int count;
+
+    private int[] values;
+    private byte[] large;
+
+    @Setup
+    public void setup() {
+        values = new int[count];
+
+        for (int index = 0; index < count; ++index)
+            values[index] = index;
+
+        large = SyntheticIff.large(256, 8, 64);
+    }
+
+    /**
+     * Insert ints one at a time into a buffer sized for them up front.
+     */
+    @Benchmark
+    public Iff insertChunkData() {
+        final Iff iff = new Iff(count * 4 + 32);
+        insertInts(iff);
+        return iff;
+    }
+
+    /**
+     * Insert ints one at a time into a buffer that starts small and grows as it fills.
+     */
+    @Benchmark
+    public Iff insertChunkDataWithGrowth() {
+        final Iff iff = new Iff(8);
+        insertInts(iff);
+        return iff;
+    }
+
+    @Benchmark
+    public Iff insertChunkDataBulk() {
+        final Iff iff = new Iff(8);
+        iff.insertForm(SyntheticIff.ID_ROOT);
+        iff.insertChunk(SyntheticIff.ID_DATA);
+        iff.insertChunkData(values);
+        iff.exitChunk(SyntheticIff.ID_DATA);
+        iff.exitForm(SyntheticIff.ID_ROOT);
+        return iff;
+    }
+
+    @Benchmark
+    public IffWriter writerInsertChunkData() {
+        final IffWriter writer = new IffWriter(64);
+        writer.insertForm(SyntheticIff.ID_ROOT);
+        writer.insertChunk(SyntheticIff.ID_DATA);
+
+        for (final int value : values)
+            writer.insertChunkData(value);
+
+        writer.exitChunk(SyntheticIff.ID_DATA);
+        writer.exitForm(SyntheticIff.ID_ROOT);
+        return writer;
+    }
+
+    /**
+     * Insert chunks at the start of an existing file, so that the rest of the data has to make room for them.
+     */
+    @Benchmark
+    public Iff insertAtStartOfExistingData() {
+        final Iff iff = new Iff("large", large.clone());
+        iff.enterForm(SyntheticIff.ID_ROOT);
+
+        for (int index = 0; index < count / 64; ++index) {
+            iff.insertChunk(SyntheticIff.ID_DATA);
+            iff.insertChunkData(index);
+            iff.exitChunk(SyntheticIff.ID_DATA);
+        }
+
+        return iff;
+    }
+
+    private void insertInts(final Iff iff) {
+        iff.insertForm(SyntheticIff.ID_ROOT);
+        iff.insertChunk(SyntheticIff.ID_DATA);
+
+        for (final int value : values)
+            iff.insertChunkData(value);
+
+        iff.exitChunk(SyntheticIff.ID_DATA);
+        iff.exitForm(SyntheticIff.ID_ROOT);
+    }
+}
@@ -0,0 +1,103 @@
+package bacta.iff.jfr;
+
+import bacta.iff.Iff;
+import bacta.iff.IffMetrics;
+import com.google.common.base.Preconditions;
+
+/**
+ * Metrics which record a flight recorder event for every Iff file loaded or written, and pass every other count on to
+ * another set of metrics.
+ * <p>
+ * Events are only created while a recording has them enabled. To record them for every Iff, install the recorder with
+ * {@link #install()} at startup.
+ */
+public final class IffFlightRecorder implements IffMetrics {
+    private final IffMetrics delegate;
+
+    public IffFlightRecorder() {
+        this(IffMetrics.NONE);
+    }
+
+    /**
+     * @param delegate The metrics to pass counts other than file loads and writes on to, such as
+     *                 {@link bacta.iff.IffStatistics}. File loads and writes are passed on too.
+     */
+    public IffFlightRecorder(final IffMetrics delegate) {
+        Preconditions.checkNotNull(delegate);
+        this.delegate = delegate;
+    }
+
+    /**
+     * Record events for every Iff created from now on, passing counts on to the metrics that were the default.
+     *
+     * @return The installed recorder.
+     */
+    public static IffFlightRecorder install() {
+        final IffFlightRecorder recorder = new IffFlightRecorder(Iff.getDefaultMetrics());
+        Iff.setDefaultMetrics(recorder);
+        return recorder;
+    }
+
+    @Override
+    public void formEntered() {
+        delegate.formEntered();
+    }
+
+    @Override
+    public void chunkEntered() {
+        delegate.chunkEntered();
+    }
+
+    @Override
+    public void chunkExited(final int bytes) {
+        delegate.chunkExited(bytes);
+    }
+
+    @Override
+    public void seeked(final int steps) {
+        delegate.seeked(steps);
+    }
+
+    @Override
+    public void resized(final int oldCapacity, final int newCapacity) {
+        delegate.resized(oldCapacity, newCapacity);
+    }
+
+    @Override
+    public void moved(final int bytes) {
+        delegate.moved(bytes);
+    }
+
+    @Override
+    public void stringRead(final int bytes) {
+        delegate.stringRead(bytes);
+    }
+
+    @Override
+    public void fileLoaded(final String fileName, final long bytes, final long durationNanos) {
+        final IffLoadEvent event = new IffLoadEvent();
+
+        if (event.shouldCommit()) {
+            event.fileName = fileName;
+            event.bytes = bytes;
+            event.loadTime = durationNanos;
+            event.commit();
+        }
+
+        delegate.fileLoaded(fileName, bytes, durationNanos);
+    }
+
+    @Override
+    public void fileWritten(final String fileName, final long bytes, final long durationNanos) {
+        final IffWriteEvent event = new IffWriteEvent();
+
+        if (event.shouldCommit()) {
+            event.fileName = fileName;
+            event.bytes = bytes;
+            event.writeTime = durationNanos;
+            event.commit();
+        }
+
+        delegate.fileWritten(fileName, bytes, durationNanos);
+    }
+}
@@ -0,0 +1,30 @@
+package bacta.iff.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Recorded when an Iff file is read, mapped or inflated.
+ */
+@Name("bacta.iff.Load")
+@Label("Iff Load")
+@Category({"Bacta", "Iff"})
+@Description("An Iff file was loaded.")
+@StackTrace(false)
+public class IffLoadEvent extends jdk.jfr.Event {
+    @Label("File Name")
+    String fileName;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Load Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long loadTime;
+}
@@ -0,0 +1,30 @@
+package bacta.iff.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Recorded when an Iff file is written.
+ */
+@Name("bacta.iff.Write")
+@Label("Iff Write")
+@Category({"Bacta", "Iff"})
+@Description("An Iff file was written.")
+@StackTrace(false)
+public class IffWriteEvent extends jdk.jfr.Event {
+    @Label("File Name")
+    String fileName;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Write Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long writeTime;
+}
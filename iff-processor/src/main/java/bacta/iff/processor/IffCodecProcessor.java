@@ -0,0 +1,346 @@
+package bacta.iff.processor;
+
+import bacta.iff.IffChunk;
+import bacta.iff.IffForm;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates an {@link bacta.iff.IffCodec} for every class annotated with {@link IffForm}.
+ * <p>
+ * The generated code is straight line calls against the {@link bacta.iff.Iff} API for each field in order, with no
+ * reflection and no boxing. Arrays are read and written with the bulk methods.
+ */
+@SupportedAnnotationTypes("bacta.iff.IffForm")
+public final class IffCodecProcessor extends AbstractProcessor {
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnvironment) {
+        for (final Element element : roundEnvironment.getElementsAnnotatedWith(IffForm.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@IffForm may only be used on classes.");
+                continue;
+            }
+
+            final TypeElement type = (TypeElement) element;
+            final List<Field> fields = collectFields(type);
+
+            if (fields == null)
+                continue;
+
+            try {
+                generate(type, fields);
+            } catch (final IOException e) {
+                error(type, String.format("Could not write codec: %s", e.getMessage()));
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The annotated fields of a class in order, or null if the class is not valid for a codec.
+     */
+    private List<Field> collectFields(final TypeElement type) {
+        final IffForm form = type.getAnnotation(IffForm.class);
+        boolean valid = checkTag(type, form.value()) & checkTag(type, form.version());
+
+        if (type.getModifiers().contains(Modifier.ABSTRACT) || type.getModifiers().contains(Modifier.PRIVATE)) {
+            error(type, "@IffForm classes must not be abstract or private.");
+            valid = false;
+        }
+
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            error(type, "@IffForm classes nested in another class must be static.");
+            valid = false;
+        }
+
+        if (!hasDefaultConstructor(type)) {
+            error(type, "@IffForm classes must have a constructor without arguments that is not private.");
+            valid = false;
+        }
+
+        final List<Field> fields = new ArrayList<>();
+
+        for (final Element member : type.getEnclosedElements()) {
+            final IffChunk chunk = member.getAnnotation(IffChunk.class);
+
+            if (chunk == null || member.getKind() != ElementKind.FIELD)
+                continue;
+
+            final VariableElement variable = (VariableElement) member;
+            final Set<Modifier> modifiers = variable.getModifiers();
+
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+                error(variable, "@IffChunk fields must not be private, final or static.");
+                valid = false;
+                continue;
+            }
+
+            final String kind = kindOf(variable.asType());
+
+            if (kind == null) {
+                error(variable, String.format("Unsupported @IffChunk field type %s.", variable.asType()));
+                valid = false;
+                continue;
+            }
+
+            valid &= checkTag(variable, chunk.value());
+            fields.add(new Field(variable.getSimpleName().toString(), kind, chunk.value(), chunk.order()));
+        }
+
+        fields.sort(Comparator.comparingInt(field -> field.order));
+
+        for (int index = 1; index < fields.size(); ++index) {
+            if (fields.get(index).order == fields.get(index - 1).order) {
+                error(type, String.format("Fields %s and %s have the same order.",
+                        fields.get(index - 1).name,
+                        fields.get(index).name));
+                valid = false;
+            }
+        }
+
+        return valid ? fields : null;
+    }
+
+    private void generate(final TypeElement type, final List<Field> fields) throws IOException {
+        final IffForm form = type.getAnnotation(IffForm.class);
+        final String packageName = getPackage(type).getQualifiedName().toString();
+        final String typeName = type.getQualifiedName().toString();
+        final String codecName = getCodecName(type);
+
+        //Each run of fields with the same chunk name becomes one chunk.
+        final List<String> chunks = new ArrayList<>();
+
+        for (int index = 0; index < fields.size(); ++index) {
+            if (index == 0 || !fields.get(index).chunk.equals(fields.get(index - 1).chunk))
+                chunks.add(fields.get(index).chunk);
+
+            fields.get(index).chunkIndex = chunks.size() - 1;
+        }
+
+        final StringBuilder source = new StringBuilder();
+
+        if (!packageName.isEmpty())
+            source.append("package ").append(packageName).append(";\n\n");
+
+        source.append("import bacta.iff.Iff;\n");
+        source.append("import bacta.iff.IffCodec;\n\n");
+        source.append("/**\n");
+        source.append(" * Reads and writes {@link ").append(typeName).append("}. Generated by the iff-processor.\n");
+        source.append(" */\n");
+        source.append("public final class ").append(codecName).append(" implements IffCodec<").append(typeName).append("> {\n");
+        source.append("    public static final int FORM_TAG = Iff.createChunkId(").append(literal(form.value())).append(");\n");
+        source.append("    public static final int VERSION_TAG = Iff.createChunkId(").append(literal(form.version())).append(");\n");
+
+        for (int index = 0; index < chunks.size(); ++index) {
+            source.append("    private static final int CHUNK_").append(index)
+                    .append(" = Iff.createChunkId(").append(literal(chunks.get(index))).append(");\n");
+        }
+
+        source.append("\n    @Override\n");
+        source.append("    public ").append(typeName).append(" read(final Iff iff) {\n");
+        source.append("        final ").append(typeName).append(" value = new ").append(typeName).append("();\n");
+        source.append("        iff.enterForm(VERSION_TAG);\n");
+
+        for (int index = 0; index < fields.size(); ++index) {
+            final Field field = fields.get(index);
+
+            if (index == 0 || field.chunkIndex != fields.get(index - 1).chunkIndex)
+                source.append("        iff.enterChunk(CHUNK_").append(field.chunkIndex).append(");\n");
+
+            appendRead(source, field);
+
+            if (index == fields.size() - 1 || field.chunkIndex != fields.get(index + 1).chunkIndex)
+                source.append("        iff.exitChunk(CHUNK_").append(field.chunkIndex).append(");\n");
+        }
+
+        source.append("        iff.exitForm(VERSION_TAG);\n");
+        source.append("        return value;\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public void write(final Iff iff, final ").append(typeName).append(" value) {\n");
+        source.append("        iff.insertForm(VERSION_TAG);\n");
+
+        for (int index = 0; index < fields.size(); ++index) {
+            final Field field = fields.get(index);
+
+            if (index == 0 || field.chunkIndex != fields.get(index - 1).chunkIndex)
+                source.append("        iff.insertChunk(CHUNK_").append(field.chunkIndex).append(");\n");
+
+            if (field.kind.endsWith("[]"))
+                source.append("        iff.insertChunkData(value.").append(field.name).append(".length);\n");
+
+            source.append("        iff.insertChunkData(value.").append(field.name).append(");\n");
+
+            if (index == fields.size() - 1 || field.chunkIndex != fields.get(index + 1).chunkIndex)
+                source.append("        iff.exitChunk(CHUNK_").append(field.chunkIndex).append(");\n");
+        }
+
+        source.append("        iff.exitForm(VERSION_TAG);\n");
+        source.append("    }\n");
+        source.append("}\n");
+
+        final String qualifiedName = packageName.isEmpty() ? codecName : packageName + "." + codecName;
+        final JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+
+        try (final Writer writer = file.openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private static void appendRead(final StringBuilder source, final Field field) {
+        final String target = "value." + field.name;
+
+        switch (field.kind) {
+            case "boolean":
+                source.append("        ").append(target).append(" = iff.readBoolean();\n");
+                break;
+            case "byte":
+                source.append("        ").append(target).append(" = iff.readByte();\n");
+                break;
+            case "short":
+                source.append("        ").append(target).append(" = iff.readShort();\n");
+                break;
+            case "int":
+                source.append("        ").append(target).append(" = iff.readInt();\n");
+                break;
+            case "long":
+                source.append("        ").append(target).append(" = iff.readLong();\n");
+                break;
+            case "float":
+                source.append("        ").append(target).append(" = iff.readFloat();\n");
+                break;
+            case "String":
+                source.append("        ").append(target).append(" = iff.readString();\n");
+                break;
+            default:
+                final String element = field.kind.substring(0, field.kind.length() - 2);
+                final String method = "read" + Character.toUpperCase(element.charAt(0)) + element.substring(1) + "s";
+
+                source.append("        ").append(target).append(" = new ").append(element).append("[iff.readInt()];\n");
+                source.append("        iff.").append(method).append("(").append(target).append(", 0, ")
+                        .append(target).append(".length);\n");
+                break;
+        }
+    }
+
+    /**
+     * @return The name used in the generated code for a supported field type, or null if the type is not supported.
+     */
+    private static String kindOf(final TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+                return type.toString();
+            case ARRAY:
+                final TypeKind component = ((ArrayType) type).getComponentType().getKind();
+
+                if (component == TypeKind.BYTE || component == TypeKind.SHORT || component == TypeKind.INT
+                        || component == TypeKind.LONG || component == TypeKind.FLOAT)
+                    return ((ArrayType) type).getComponentType().toString() + "[]";
+
+                return null;
+            case DECLARED:
+                return "java.lang.String".equals(type.toString()) ? "String" : null;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean hasDefaultConstructor(final TypeElement type) {
+        for (final Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) member).getParameters().isEmpty()
+                    && !member.getModifiers().contains(Modifier.PRIVATE))
+                return true;
+        }
+
+        return false;
+    }
+
+    private boolean checkTag(final Element element, final String tag) {
+        if (tag.length() == 4)
+            return true;
+
+        error(element, String.format("Tag [%s] must be four characters.", tag));
+        return false;
+    }
+
+    private static PackageElement getPackage(Element element) {
+        while (element.getKind() != ElementKind.PACKAGE)
+            element = element.getEnclosingElement();
+
+        return (PackageElement) element;
+    }
+
+    /**
+     * @return The simple name of the codec; nested classes are prefixed with the names of their enclosing classes.
+     */
+    private static String getCodecName(final TypeElement type) {
+        String name = type.getSimpleName().toString();
+
+        for (Element enclosing = type.getEnclosingElement();
+             enclosing.getKind() != ElementKind.PACKAGE;
+             enclosing = enclosing.getEnclosingElement())
+            name = enclosing.getSimpleName() + "_" + name;
+
+        return name + "Codec";
+    }
+
+    private static String literal(final String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private void error(final Element element, final String message) {
+        final Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static final class Field {
+        private final String name;
+        private final String kind;
+        private final String chunk;
+        private final int order;
+        private int chunkIndex;
+
+        private Field(final String name, final String kind, final String chunk, final int order) {
+            this.name = name;
+            this.kind = kind;
+            this.chunk = chunk;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package bacta.iff.processor;
+
+import bacta.iff.Iff;
+import bacta.iff.IffCodec;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class IffCodecProcessorTest {
+    private static final String SOURCE = "package test;\n" +
+            "import bacta.iff.IffChunk;\n" +
+            "import bacta.iff.IffForm;\n" +
+            "@IffForm(value = \"TEST\", version = \"0001\")\n" +
+            "public class Template {\n" +
+            "    @IffChunk(value = \"INFO\", order = 0) public int count;\n" +
+            "    @IffChunk(value = \"INFO\", order = 1) public String name;\n" +
+            "    @IffChunk(value = \"DATA\", order = 2) public float[] values;\n" +
+            "    @IffChunk(value = \"DATA\", order = 3) public boolean enabled;\n" +
+            "}\n";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldGenerateCodec() throws Exception {
+        final Path output = compile(SOURCE);
+
+        try (final URLClassLoader loader = new URLClassLoader(new URL[]{output.toUri().toURL()}, getClass().getClassLoader())) {
+            final Class<?> templateClass = loader.loadClass("test.Template");
+            final IffCodec<Object> codec = (IffCodec<Object>) loader.loadClass("test.TemplateCodec").newInstance();
+
+            final Object template = templateClass.newInstance();
+            templateClass.getField("count").setInt(template, 3);
+            templateClass.getField("name").set(template, "shared_human_male");
+            templateClass.getField("values").set(template, new float[]{1.0f, 2.5f});
+            templateClass.getField("enabled").setBoolean(template, true);
+
+            final Iff iff = new Iff(64);
+            iff.insertForm(Iff.createChunkId("TEST"));
+            codec.write(iff, template);
+            iff.exitForm();
+            iff.goToTopOfForm();
+
+            iff.enterForm(Iff.createChunkId("TEST"));
+            final Object read = codec.read(iff);
+
+            Assert.assertEquals(3, templateClass.getField("count").getInt(read));
+            Assert.assertEquals("shared_human_male", templateClass.getField("name").get(read));
+            Assert.assertTrue(Arrays.equals(new float[]{1.0f, 2.5f}, (float[]) templateClass.getField("values").get(read)));
+            Assert.assertTrue(templateClass.getField("enabled").getBoolean(read));
+            Assert.assertTrue(iff.isAtEndOfForm());
+        }
+    }
+
+    @Test
+    public void shouldRejectPrivateFields() throws IOException {
+        final String source = SOURCE.replace("public int count", "private int count");
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        Assert.assertFalse(run(source, Files.createTempDirectory("processor"), diagnostics));
+
+        boolean reported = false;
+
+        for (final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+            reported |= diagnostic.getMessage(null).contains("must not be private");
+
+        Assert.assertTrue(reported);
+    }
+
+    private static Path compile(final String source) throws IOException {
+        final Path output = Files.createTempDirectory("processor");
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        if (!run(source, output, diagnostics))
+            Assert.fail(diagnostics.getDiagnostics().toString());
+
+        return output;
+    }
+
+    private static boolean run(final String source,
+                               final Path output,
+                               final DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+        try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            final JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///test/Template.java"), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            };
+
+            final JavaCompiler.CompilationTask task = compiler.getTask(null,
+                    fileManager,
+                    diagnostics,
+                    Arrays.asList("-d", output.toString(), "-classpath", System.getProperty("java.class.path")),
+                    null,
+                    Collections.singletonList(file));
+
+            task.setProcessors(Collections.singletonList(new IffCodecProcessor()));
+            return task.call();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package bacta.iff.tools;
+
+import bacta.iff.IffImage;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs a task over many files concurrently.
+ * <p>
+ * Every file is processed on its own virtual thread, so a thread waiting on a read does not hold up the others. The
+ * number of files being read or processed at once is bounded by a semaphore, which bounds both the load on the file
+ * system and the memory held by file contents.
+ */
+final class IffBatch {
+    private final IffTask task;
+    private final Path output;
+    private final int parallelism;
+
+    /**
+     * @param task        The task to run for each file.
+     * @param output      The directory written to by the task, or null if it writes nothing.
+     * @param parallelism The most files to read or process at once.
+     */
+    IffBatch(final IffTask task, final Path output, final int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+
+        this.task = task;
+        this.output = output;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Process every file and wait for all of them to finish.
+     */
+    IffReport run(final List<IffSource.Entry> entries) {
+        final IffReport report = new IffReport(task);
+        final Semaphore permits = new Semaphore(parallelism);
+        final long start = System.nanoTime();
+
+        try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (final IffSource.Entry entry : entries)
+                executor.execute(() -> process(entry, permits, report));
+        }
+
+        report.finished(System.nanoTime() - start);
+        return report;
+    }
+
+    private void process(final IffSource.Entry entry, final Semaphore permits, final IffReport report) {
+        final String name = entry.getName();
+
+        permits.acquireUninterruptibly();
+
+        try {
+            final ByteBuffer data = entry.read();
+            final IffImage image = IffTask.validate(name, data);
+
+            task.run(name, image, output);
+            report.passed(image.getLength());
+        } catch (final IOException | RuntimeException e) {
+            report.failed(name, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package bacta.iff.tools;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the results of a batch and writes them as a summary.
+ * <p>
+ * Results may be added from many threads at once.
+ */
+final class IffReport {
+    private final IffTask task;
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final ConcurrentLinkedQueue<Map.Entry<String, String>> failures = new ConcurrentLinkedQueue<>();
+    private long elapsedNanos;
+
+    IffReport(final IffTask task) {
+        this.task = task;
+    }
+
+    void passed(final int length) {
+        passed.increment();
+        bytes.add(length);
+    }
+
+    void failed(final String name, final String message) {
+        failures.add(Map.entry(name, message));
+    }
+
+    void finished(final long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    long getPassedCount() {
+        return passed.sum();
+    }
+
+    int getFailedCount() {
+        return failures.size();
+    }
+
+    /**
+     * @return The failures in name order, as pairs of file name and message.
+     */
+    List<Map.Entry<String, String>> getFailures() {
+        final List<Map.Entry<String, String>> sorted = new ArrayList<>(failures);
+        sorted.sort(Map.Entry.comparingByKey(Comparator.naturalOrder()));
+
+        return sorted;
+    }
+
+    void write(final PrintWriter writer) {
+        final long passedCount = getPassedCount();
+        final List<Map.Entry<String, String>> sorted = getFailures();
+        final double seconds = elapsedNanos / 1e9;
+
+        writer.printf("task: %s%n", task.name().toLowerCase(Locale.ROOT));
+        writer.printf("files: %d%n", passedCount + sorted.size());
+        writer.printf("passed: %d%n", passedCount);
+        writer.printf("failed: %d%n", sorted.size());
+        writer.printf("bytes: %d%n", bytes.sum());
+        writer.printf("elapsed: %.3f s%n", seconds);
+
+        if (seconds > 0) {
+            writer.printf("throughput: %.1f files/s, %.1f MB/s%n",
+                    (passedCount + sorted.size()) / seconds,
+                    bytes.sum() / seconds / (1024 * 1024));
+        }
+
+        if (!sorted.isEmpty()) {
+            writer.println();
+            writer.println("failures:");
+
+            for (final Map.Entry<String, String> failure : sorted)
+                writer.printf("%s: %s%n", failure.getKey(), failure.getValue());
+        }
+
+        writer.flush();
+    }
+}
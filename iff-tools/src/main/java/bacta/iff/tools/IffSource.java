@@ -0,0 +1,115 @@
+package bacta.iff.tools;
+
+import bacta.iff.TreArchive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Lists the files to process from a directory tree, a tre archive or a single file.
+ */
+final class IffSource {
+    private static final String ARCHIVE_EXTENSION = ".tre";
+
+    private IffSource() {
+    }
+
+    /**
+     * @param path    A directory, which is walked for files, a tre archive, or a single file.
+     * @param matcher Selects files by their file name. A single file is always selected.
+     * @return The selected files, in name order. Records of an archive replaced by later records are left out.
+     */
+    static List<Entry> list(final Path path, final PathMatcher matcher) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (final Stream<Path> files = Files.walk(path)) {
+                return files.filter(Files::isRegularFile)
+                        .filter(file -> matcher.matches(file.getFileName()))
+                        .sorted()
+                        .map(file -> new FileEntry(path.relativize(file).toString().replace('\\', '/'), file))
+                        .collect(Collectors.toList());
+            }
+        }
+
+        if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(ARCHIVE_EXTENSION)) {
+            final TreArchive archive = TreArchive.open(path);
+            final List<Entry> entries = new ArrayList<>();
+
+            for (int record = 0; record < archive.size(); ++record) {
+                final String name = archive.getName(record);
+
+                //A record replaced by a later record of the same name is never read from the archive.
+                if (archive.find(name) != record)
+                    continue;
+
+                if (matcher.matches(Paths.get(name).getFileName()))
+                    entries.add(new ArchiveEntry(archive, record));
+            }
+
+            return entries;
+        }
+
+        return List.of(new FileEntry(path.getFileName().toString(), path));
+    }
+
+    /**
+     * A file to process.
+     */
+    interface Entry {
+        /**
+         * @return The name of the file relative to its source, with forward slashes.
+         */
+        String getName();
+
+        ByteBuffer read() throws IOException;
+    }
+
+    private static final class FileEntry implements Entry {
+        private final String name;
+        private final Path path;
+
+        private FileEntry(final String name, final Path path) {
+            this.name = name;
+            this.path = path;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public ByteBuffer read() throws IOException {
+            return ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private static final class ArchiveEntry implements Entry {
+        private final TreArchive archive;
+        private final int record;
+
+        private ArchiveEntry(final TreArchive archive, final int record) {
+            this.archive = archive;
+            this.record = record;
+        }
+
+        @Override
+        public String getName() {
+            return archive.getName(record);
+        }
+
+        @Override
+        public ByteBuffer read() throws IOException {
+            return archive.read(record);
+        }
+    }
+}
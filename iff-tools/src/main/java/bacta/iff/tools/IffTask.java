@@ -0,0 +1,176 @@
+package bacta.iff.tools;
+
+import bacta.iff.Iff;
+import bacta.iff.IffImage;
+import bacta.iff.IffIndex;
+import bacta.iff.IffNode;
+import bacta.iff.IffWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The work done for each file.
+ * <p>
+ * Every task first validates the structure of the file: each block header must fit within its parent, each block must
+ * end within its parent, every tag must be four printable characters, and the length of the top level blocks computed
+ * by {@link Iff#calculateRawDataSize()} must be the length of the file. Padding left after the data, which reads as
+ * empty blocks with zero tags, therefore fails. A file failing validation is reported and not processed further.
+ * <p>
+ * Files are only ever written inside the output directory; a name that would resolve outside of it fails.
+ */
+enum IffTask {
+    /**
+     * Validate the structure of each file.
+     */
+    VALIDATE {
+        @Override
+        void run(final String name, final IffImage image, final Path output) {
+        }
+    },
+
+    /**
+     * Write the tree of tags of each file, to a text file beside its output path or to the standard output.
+     */
+    DUMP {
+        @Override
+        void run(final String name, final IffImage image, final Path output) throws IOException {
+            final StringBuilder text = new StringBuilder();
+            dump(text, image.getIndex(), IffIndex.ROOT, 0);
+
+            if (output == null) {
+                final PrintStream out = System.out;
+
+                synchronized (out) {
+                    out.println(name);
+                    out.print(text);
+                }
+            } else {
+                final Path path = resolve(output, name + ".txt");
+                Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    },
+
+    /**
+     * Write each file again block by block, recalculating every block length, to the same name under the output
+     * directory.
+     */
+    REWRITE {
+        @Override
+        void run(final String name, final IffImage image, final Path output) throws IOException {
+            if (output == null)
+                throw new IllegalArgumentException("An output directory is needed to rewrite files.");
+
+            final IffWriter writer = new IffWriter(Math.max(image.getLength(), 1));
+
+            for (final IffNode node : IffNode.root(image).getChildren())
+                copy(writer, node);
+
+            writer.write(resolve(output, name));
+        }
+    };
+
+    abstract void run(final String name, final IffImage image, final Path output) throws IOException;
+
+    /**
+     * @return The image of a file, indexed.
+     * @throws IllegalArgumentException If the structure of the file is not valid.
+     */
+    static IffImage validate(final String name, final ByteBuffer data) {
+        if (!data.hasRemaining())
+            throw new IllegalArgumentException("File is empty.");
+
+        final IffImage image = IffImage.of(name, data).withIndex();
+        final IffIndex index = image.getIndex();
+
+        for (int node = IffIndex.ROOT + 1; node < index.size(); ++node) {
+            checkTag(index, node, index.getTag(node));
+
+            if (index.isForm(node))
+                checkTag(index, node, index.getName(node));
+        }
+
+        //The index has checked that every header is in bounds, so the blocks can be walked without overrunning.
+        final int rawLength = image.newCursor().calculateRawDataSize();
+
+        if (rawLength != image.getLength()) {
+            throw new IllegalArgumentException(String.format("Top level blocks span %d bytes but the file is %d bytes.",
+                    rawLength,
+                    image.getLength()));
+        }
+
+        return image;
+    }
+
+    private static void checkTag(final IffIndex index, final int node, final int tag) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            final int character = (tag >>> shift) & 0xFF;
+
+            if (character < 0x20 || character > 0x7E) {
+                throw new IllegalArgumentException(String.format("Block at offset %d has an invalid tag 0x%08X.",
+                        index.getOffset(node),
+                        tag));
+            }
+        }
+    }
+
+    private static void dump(final StringBuilder text, final IffIndex index, final int node, final int depth) {
+        for (int ordinal = 0; ordinal < index.getChildCount(node); ++ordinal) {
+            final int child = index.getChild(node, ordinal);
+
+            for (int indent = 0; indent < depth; ++indent)
+                text.append("  ");
+
+            if (index.isForm(child))
+                text.append(Iff.getChunkName(index.getTag(child))).append(' ');
+
+            text.append(Iff.getChunkName(index.getName(child)))
+                    .append(' ')
+                    .append(index.getDataLength(child))
+                    .append('\n');
+
+            dump(text, index, child, depth + 1);
+        }
+    }
+
+    private static void copy(final IffWriter writer, final IffNode node) {
+        if (node.isChunk()) {
+            writer.insertChunk(node.getName());
+            writer.insertChunkData(node.slice());
+            writer.exitChunk(node.getName());
+            return;
+        }
+
+        if (node.getTag() != Iff.TAG_FORM) {
+            throw new IllegalArgumentException(String.format("Cannot rewrite [%s] groups.",
+                    Iff.getChunkName(node.getTag())));
+        }
+
+        writer.insertForm(node.getName());
+
+        for (final IffNode child : node.getChildren())
+            copy(writer, child);
+
+        writer.exitForm(node.getName());
+    }
+
+    /**
+     * @throws IllegalArgumentException If the name would resolve outside of the output directory.
+     */
+    static Path resolve(final Path output, final String name) throws IOException {
+        final Path root = output.toAbsolutePath().normalize();
+        final Path path = root.resolve(name).normalize();
+
+        if (!path.startsWith(root) || path.equals(root))
+            throw new IllegalArgumentException(String.format("File name [%s] is outside the output directory.", name));
+
+        Files.createDirectories(path.getParent());
+
+        return path;
+    }
+}
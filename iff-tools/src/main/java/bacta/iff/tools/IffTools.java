@@ -0,0 +1,115 @@
+package bacta.iff.tools;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Validates, dumps or rewrites every iff file in directory trees and tre archives, and writes a summary report.
+ * <p>
+ * The exit status is 0 if every file passed, 1 if any file failed and 2 if the arguments were not valid.
+ */
+public final class IffTools {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "usage: iff-tools <validate|dump|rewrite> [options] <path>...",
+            "",
+            "Each path is a directory to walk, a .tre archive or a single file.",
+            "",
+            "options:",
+            "  --output <dir>       directory written to by dump and rewrite",
+            "  --report <file>      write the summary report to a file instead of the standard output",
+            "  --parallelism <n>    most files read or processed at once (default 64)",
+            "  --glob <pattern>     names of files to select from directories and archives (default *.iff)");
+
+    private static final int DEFAULT_PARALLELISM = 64;
+    private static final String DEFAULT_GLOB = "*.iff";
+
+    private IffTools() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        System.exit(run(args));
+    }
+
+    /**
+     * @return The exit status.
+     */
+    static int run(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        final IffTask task;
+
+        try {
+            task = IffTask.valueOf(args[0].toUpperCase(Locale.ROOT));
+        } catch (final IllegalArgumentException e) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        Path output = null;
+        Path reportPath = null;
+        int parallelism = DEFAULT_PARALLELISM;
+        String glob = DEFAULT_GLOB;
+        final List<Path> paths = new ArrayList<>();
+
+        try {
+            for (int index = 1; index < args.length; ++index) {
+                switch (args[index]) {
+                    case "--output":
+                        output = Paths.get(args[++index]);
+                        break;
+                    case "--report":
+                        reportPath = Paths.get(args[++index]);
+                        break;
+                    case "--parallelism":
+                        parallelism = Integer.parseInt(args[++index]);
+                        break;
+                    case "--glob":
+                        glob = args[++index];
+                        break;
+                    default:
+                        paths.add(Paths.get(args[index]));
+                        break;
+                }
+            }
+        } catch (final ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        if (paths.isEmpty() || parallelism <= 0 || (task == IffTask.REWRITE && output == null)) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        final List<IffSource.Entry> entries = new ArrayList<>();
+
+        for (final Path path : paths)
+            entries.addAll(IffSource.list(path, matcher));
+
+        final IffReport report = new IffBatch(task, output, parallelism).run(entries);
+
+        if (reportPath != null) {
+            try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8))) {
+                report.write(writer);
+            }
+        } else {
+            report.write(new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        }
+
+        return report.getFailedCount() == 0 ? 0 : 1;
+    }
+}
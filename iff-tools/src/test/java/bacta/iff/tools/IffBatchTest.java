@@ -0,0 +1,141 @@
+package bacta.iff.tools;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public class IffBatchTest {
+    private final String resourcesPath = IffBatchTest.class.getResource("/").getPath();
+
+    private Path input;
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+        input = Files.createTempDirectory("iff-tools");
+
+        Files.createDirectories(input.resolve("creature/player"));
+        Files.write(input.resolve("creature/player/human_male.iff"), testBytes);
+        Files.write(input.resolve("truncated.iff"), Arrays.copyOf(testBytes, testBytes.length - 3));
+        Files.write(input.resolve("padded.iff"), Arrays.copyOf(testBytes, testBytes.length + 8));
+        Files.write(input.resolve("readme.txt"), new byte[]{1, 2, 3});
+    }
+
+    @Test
+    public void shouldReportInvalidFiles() throws IOException {
+        final IffReport report = new IffBatch(IffTask.VALIDATE, null, 4).run(list());
+
+        Assert.assertEquals(1, report.getPassedCount());
+        Assert.assertEquals(2, report.getFailedCount());
+        Assert.assertEquals("padded.iff", report.getFailures().get(0).getKey());
+        Assert.assertEquals("truncated.iff", report.getFailures().get(1).getKey());
+    }
+
+    @Test
+    public void shouldRewriteFiles() throws IOException {
+        final Path output = Files.createTempDirectory("iff-tools");
+        final IffReport report = new IffBatch(IffTask.REWRITE, output, 4).run(list());
+
+        Assert.assertEquals(1, report.getPassedCount());
+        Assert.assertArrayEquals(testBytes, Files.readAllBytes(output.resolve("creature/player/human_male.iff")));
+        Assert.assertFalse(Files.exists(output.resolve("truncated.iff")));
+    }
+
+    @Test
+    public void shouldNotWriteOutsideOutput() throws IOException {
+        final Path output = Files.createTempDirectory("iff-tools").resolve("output");
+        final ByteBuffer data = ByteBuffer.wrap(testBytes);
+
+        for (final String name : new String[]{"../escaped.iff", "a/../../escaped.iff", "/tmp/escaped.iff", ".."}) {
+            try {
+                IffTask.REWRITE.run(name, IffTask.validate(name, data), output);
+                Assert.fail(String.format("Wrote [%s] outside the output directory.", name));
+            } catch (final IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().contains("outside the output directory"));
+            }
+        }
+
+        Assert.assertFalse(Files.exists(output.resolveSibling("escaped.iff")));
+        IffTask.REWRITE.run("a/../kept.iff", IffTask.validate("kept.iff", data), output);
+        Assert.assertTrue(Files.exists(output.resolve("kept.iff")));
+    }
+
+    @Test
+    public void shouldListOnlyLatestRecordOfArchive() throws IOException {
+        final Path archive = input.resolve("patch.tre");
+        Files.write(archive, createArchive(Arrays.copyOf(testBytes, testBytes.length - 3), testBytes));
+
+        final List<IffSource.Entry> entries = IffSource.list(archive,
+                FileSystems.getDefault().getPathMatcher("glob:*.iff"));
+
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals(testBytes.length, entries.get(0).read().remaining());
+    }
+
+    @Test
+    public void shouldParseTaskInAnyLocale() throws IOException {
+        final Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+
+        try {
+            final String report = input.resolve("report.txt").toString();
+            final String file = input.resolve("creature/player/human_male.iff").toString();
+
+            Assert.assertEquals(0, IffTools.run(new String[]{"validate", "--report", report, file}));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    /**
+     * Build an archive holding two stored records of the same name, of which the later replaces the earlier.
+     */
+    private static byte[] createArchive(final byte[] earlier, final byte[] later) {
+        final byte[] name = "object/a.iff".getBytes(StandardCharsets.ISO_8859_1);
+        final int tocOffset = 36 + earlier.length + later.length;
+        final ByteBuffer archive = ByteBuffer.allocate(tocOffset + 2 * 24 + name.length + 1)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        archive.put("EERT5000".getBytes(StandardCharsets.ISO_8859_1));
+        archive.putInt(2);
+        archive.putInt(tocOffset);
+        archive.putInt(0);
+        archive.putInt(0);
+        archive.putInt(0);
+        archive.putInt(name.length + 1);
+        archive.putInt(name.length + 1);
+        archive.put(earlier);
+        archive.put(later);
+
+        for (final int offset : new int[]{36, 36 + earlier.length}) {
+            archive.putInt(0);
+            archive.putInt(offset == 36 ? earlier.length : later.length);
+            archive.putInt(offset);
+            archive.putInt(0);
+            archive.putInt(0);
+            archive.putInt(0);
+        }
+
+        archive.put(name);
+        archive.put((byte) 0);
+
+        return archive.array();
+    }
+
+    private List<IffSource.Entry> list() throws IOException {
+        return IffSource.list(input, FileSystems.getDefault().getPathMatcher("glob:*.iff"));
+    }
+}
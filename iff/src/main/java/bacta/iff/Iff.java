@@ -0,0 +1,1648 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Created by crush on 12/17/2014.
+ */
+public final class Iff {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Iff.class);
+
+    public static final int TAG_FORM = createChunkId("FORM");
+    public static final int TAG_PROP = createChunkId("PROP");
+    public static final int TAG_LIST = createChunkId("LIST");
+    public static final int TAG_CAT = createChunkId("CAT ");
+    public static final int TAG_FILL = createChunkId("    ");
+
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int GROUP_HEADER_SIZE = 12;
+    private static final int DEFAULT_STACK_DEPTH = 16;
+    private static final int MOVE_SCRATCH_SIZE = 4096;
+
+    public static final int createChunkId(final String chunkId) {
+        final byte[] bytes = chunkId.getBytes();
+        return ((bytes[0] << 24 | bytes[1] << 16 | bytes[2] << 8 | bytes[3]));
+    }
+
+    public static final String getChunkName(final int id) {
+        return new String(ByteBuffer.allocate(4).putInt(id).array());
+    }
+
+    public static final boolean isGroupChunkId(final int id) {
+        return id == TAG_FORM || id == TAG_LIST || id == TAG_CAT;
+    }
+
+    static final int endianSwap32(int val) {
+        return (((val & 0x000000ff) << 24) +
+                ((val & 0x0000ff00) << 8) +
+                ((val & 0x00ff0000) >> 8) +
+                ((val >> 24) & 0x000000ff));
+    }
+
+    private static volatile IffMetrics defaultMetrics = IffMetrics.NONE;
+
+    private String fileName;
+    private ByteBuffer data;
+    //A writable view of the same bytes as a read only data buffer, used only to decode strings from its array.
+    private ByteBuffer arrayData;
+    private int[] stackOffset;
+    private int[] stackLength;
+    private int[] stackUsed;
+    private int[] stackNode;
+    private int[] stackCursor;
+    private int stackDepth;
+    private boolean inChunk;
+    private IffIndex index;
+    private IffStringPool stringPool;
+    private int gapStart;
+    private int gapLength;
+    private IffAllocator allocator = IffAllocator.HEAP;
+    private boolean ownsData;
+    private IffMetrics metrics = defaultMetrics;
+
+    public Iff() {
+        this.data = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        this.gapLength = this.data.capacity();
+
+        allocateStack(0);
+    }
+
+    public Iff(final String fileName) {
+        this.fileName = fileName;
+        this.data = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        this.gapLength = this.data.capacity();
+        this.stackDepth = 0;
+        this.inChunk = false;
+
+        allocateStack(0);
+    }
+
+    public Iff(final String fileName, final byte[] bytes) {
+        this.fileName = fileName;
+        this.data = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        this.stackDepth = 0;
+        this.inChunk = false;
+
+        allocateStack(bytes.length);
+
+        this.gapStart = bytes.length;
+    }
+
+    /**
+     * Construct an IFF for reading over an existing buffer without copying it.
+     * <p>
+     * The remaining bytes of the buffer, from its position to its limit, are treated as the Iff data. The buffer
+     * itself is not modified, but the Iff shares its content, so it should not be changed while the Iff is in use.
+     *
+     * @param fileName The name of the file this data came from.
+     * @param buffer   The buffer holding the Iff data.
+     */
+    public Iff(final String fileName, final ByteBuffer buffer) {
+        this.fileName = fileName;
+        this.data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.stackDepth = 0;
+        this.inChunk = false;
+
+        allocateStack(this.data.remaining());
+
+        this.gapStart = this.data.remaining();
+    }
+
+    /**
+     * Construct an IFF for reading over a read only view of shared data, which decodes strings from the array behind
+     * the view rather than copying them first.
+     *
+     * @param buffer    The read only view holding the Iff data.
+     * @param arrayData A view of the same bytes with the same position and limit, backed by an array and never written
+     *                  to, or null if there is none.
+     */
+    Iff(final String fileName, final ByteBuffer buffer, final ByteBuffer arrayData) {
+        this(fileName, buffer);
+
+        if (arrayData != null && arrayData.hasArray())
+            this.arrayData = arrayData.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Open an Iff file for reading by memory mapping it.
+     * <p>
+     * The file is mapped read only and the Iff reads directly from the mapping, so the file contents are never copied
+     * onto the heap. The mapping remains valid after the underlying channel is closed, and is released when the Iff
+     * is garbage collected.
+     *
+     * @param path The path of the file to open.
+     * @return An Iff positioned at the start of the file.
+     * @throws IOException If the file could not be opened or mapped.
+     */
+    public static Iff open(final Path path) throws IOException {
+        final IffMetrics metrics = defaultMetrics;
+        final long start = metrics != IffMetrics.NONE ? System.nanoTime() : 0;
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final Iff iff = new Iff(path.toString(), buffer);
+
+            if (metrics != IffMetrics.NONE)
+                metrics.fileLoaded(iff.fileName, buffer.capacity(), System.nanoTime() - start);
+
+            return iff;
+        }
+    }
+
+    /**
+     * Construct an IFF for writing new data.
+     *
+     * @param initialSize Initial size of the Iff data.
+     */
+    public Iff(final int initialSize) {
+        this(initialSize, IffAllocator.HEAP);
+    }
+
+    /**
+     * Construct an IFF for writing new data, with buffers from an allocator.
+     * <p>
+     * The allocator is used for the initial buffer and every time the data grows, and the buffers the Iff no longer
+     * uses are given back to it. Call {@link #release()} once the Iff is finished with to give back its last buffer.
+     *
+     * @param initialSize Initial size of the Iff data.
+     * @param allocator   The allocator of the data buffers.
+     */
+    public Iff(final int initialSize, final IffAllocator allocator) {
+        Preconditions.checkNotNull(allocator);
+
+        this.allocator = allocator;
+        this.data = allocator.allocate(initialSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.data.clear();
+        this.ownsData = true;
+        this.gapLength = this.data.capacity();
+
+        allocateStack(0);
+    }
+
+    private void allocateStack(final int length) {
+        this.stackOffset = new int[DEFAULT_STACK_DEPTH];
+        this.stackLength = new int[DEFAULT_STACK_DEPTH];
+        this.stackUsed = new int[DEFAULT_STACK_DEPTH];
+        this.stackNode = new int[DEFAULT_STACK_DEPTH];
+        this.stackCursor = new int[DEFAULT_STACK_DEPTH];
+
+        this.stackLength[0] = length;
+        this.stackNode[0] = IffIndex.ROOT;
+    }
+
+    /**
+     * Enter a new level of the stack, growing the stack arrays if needed.
+     */
+    private void pushStack(final int offset, final int length, final int node) {
+        final int depth = ++this.stackDepth;
+
+        if (depth == this.stackOffset.length) {
+            final int newLength = depth * 2;
+            this.stackOffset = Arrays.copyOf(this.stackOffset, newLength);
+            this.stackLength = Arrays.copyOf(this.stackLength, newLength);
+            this.stackUsed = Arrays.copyOf(this.stackUsed, newLength);
+            this.stackNode = Arrays.copyOf(this.stackNode, newLength);
+            this.stackCursor = Arrays.copyOf(this.stackCursor, newLength);
+        }
+
+        this.stackOffset[depth] = offset;
+        this.stackLength[depth] = length;
+        this.stackUsed[depth] = 0;
+        this.stackNode[depth] = node;
+        this.stackCursor[depth] = 0;
+    }
+
+    /**
+     * Get the Iff data as an array.
+     * <p>
+     * For data held in a writable heap buffer this is the backing array itself, which may be longer than the Iff data.
+     * Otherwise, such as for direct, mapped or read only buffers, it is a copy of only the Iff data.
+     */
+    public byte[] getRawData() {
+        moveGap(stackLength[0]);
+
+        if (data.hasArray() && data.arrayOffset() == 0)
+            return data.array();
+
+        final byte[] bytes = new byte[stackLength[0]];
+        final ByteBuffer source = data.duplicate();
+        source.clear();
+        source.get(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Calculate the number of bytes contained in the raw Iff data buffer.
+     *
+     * @return
+     */
+    public int calculateRawDataSize() {
+        moveGap(stackLength[0]);
+
+        final int length = data.capacity();
+
+        int offset = 0;
+        int blockLength;
+        int tempLength;
+
+        do {
+            //get an int from the current offset + 4
+            tempLength = data.getInt(offset + 4);
+            tempLength = endianSwap32(tempLength);
+            blockLength = tempLength + 4 + 4;
+            offset += blockLength;
+        } while ((offset < length) && blockLength != 0);
+
+        return offset;
+    }
+
+    /**
+     * Build a table of contents for this Iff in a single scan of its data.
+     * <p>
+     * While an index is present, seeking, counting blocks and moving forward within a form no longer walk the
+     * sibling blocks. The index is discarded if the Iff data is modified.
+     *
+     * @return The index that was built.
+     */
+    public IffIndex buildIndex() {
+        moveGap(stackLength[0]);
+        setIndex(IffIndex.build(data, stackLength[0]));
+        return index;
+    }
+
+    /**
+     * Use an index that was previously built over the same data, for example by another Iff sharing the buffer.
+     *
+     * @param index The index, or null to stop using an index.
+     */
+    public void setIndex(final IffIndex index) {
+        this.index = index;
+
+        if (index == null)
+            return;
+
+        //Resolve the node for each level we are already inside.
+        for (int depth = 1; depth <= stackDepth; ++depth) {
+            final int parent = depth - 1;
+            final int node = index.findChildAt(stackNode[parent], stackOffset[parent] + stackUsed[parent], stackCursor[parent]);
+
+            if (node == IffIndex.NONE)
+                throw new IllegalArgumentException("Index does not match the Iff data.");
+
+            stackCursor[parent] = index.getOrdinal(node);
+            stackNode[depth] = node;
+            stackCursor[depth] = 0;
+        }
+    }
+
+    public IffIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Share strings read by {@link #readString()} through a pool, so that strings repeated across files are decoded
+     * once. The same pool may be set on any number of Iff instances.
+     *
+     * @param stringPool The pool, or null to decode every string.
+     */
+    public void setStringPool(final IffStringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * Set the metrics used by Iff instances created from now on.
+     *
+     * @param metrics The metrics, or {@link IffMetrics#NONE} to stop recording.
+     */
+    public static void setDefaultMetrics(final IffMetrics metrics) {
+        Preconditions.checkNotNull(metrics);
+        defaultMetrics = metrics;
+    }
+
+    public static IffMetrics getDefaultMetrics() {
+        return defaultMetrics;
+    }
+
+    /**
+     * Set the metrics recording the work done by this Iff, in place of the defaults it was created with.
+     */
+    public void setMetrics(final IffMetrics metrics) {
+        Preconditions.checkNotNull(metrics);
+        this.metrics = metrics;
+    }
+
+    public IffMetrics getMetrics() {
+        return metrics;
+    }
+
+    public IffStringPool getStringPool() {
+        return stringPool;
+    }
+
+    public final String getFileName() {
+        return this.fileName;
+    }
+
+    public final int getStackDepth() {
+        return this.stackDepth;
+    }
+
+    public final boolean readBoolean() {
+        return readByte() == 1;
+    }
+
+    public final byte readByte() {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        if (this.stackUsed[depth] + 1 > this.stackLength[depth])
+            throw new BufferOverflowException();
+
+        byte value = data.get(physical(this.stackUsed[depth] + this.stackOffset[depth], 1));
+
+        this.stackUsed[depth] += 1;
+
+        return value;
+    }
+
+    public final short readShort() {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        if (this.stackUsed[depth] + 2 > this.stackLength[depth])
+            throw new BufferOverflowException();
+
+        short value = data.getShort(physical(this.stackUsed[depth] + this.stackOffset[depth], 2));
+
+        this.stackUsed[depth] += 2;
+
+        return value;
+    }
+
+    public final int readInt() {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        if (this.stackUsed[depth] + 4 > this.stackLength[depth])
+            throw new BufferOverflowException();
+
+        int value = data.getInt(physical(this.stackUsed[depth] + this.stackOffset[depth], 4));
+
+        this.stackUsed[depth] += 4;
+
+        return value;
+    }
+
+    public final long readLong() {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        if (this.stackUsed[depth] + 8 > this.stackLength[depth])
+            throw new BufferOverflowException();
+
+        long value = data.getLong(physical(this.stackUsed[depth] + this.stackOffset[depth], 8));
+
+        this.stackUsed[depth] += 8;
+
+        return value;
+    }
+
+    public final float readFloat() {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        if (this.stackUsed[depth] + 4 > this.stackLength[depth])
+            throw new BufferOverflowException();
+
+        float value = data.getFloat(physical(this.stackUsed[depth] + this.stackOffset[depth], 4));
+
+        this.stackUsed[depth] += 4;
+
+        return value;
+    }
+
+    /**
+     * Read a range of bytes from the current chunk in a single copy.
+     *
+     * @param destination The array to read into.
+     * @param offset      The index of the first element to fill.
+     * @param length      The number of elements to read.
+     */
+    public final void readBytes(final byte[] destination, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, destination.length);
+        getChunkReadView(length).get(destination, offset, length);
+    }
+
+    public final void readShorts(final short[] destination, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, destination.length);
+        getChunkReadView(length * 2).asShortBuffer().get(destination, offset, length);
+    }
+
+    public final void readInts(final int[] destination, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, destination.length);
+        getChunkReadView(length * 4).asIntBuffer().get(destination, offset, length);
+    }
+
+    public final void readLongs(final long[] destination, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, destination.length);
+        getChunkReadView(length * 8).asLongBuffer().get(destination, offset, length);
+    }
+
+    public final void readFloats(final float[] destination, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, destination.length);
+        getChunkReadView(length * 4).asFloatBuffer().get(destination, offset, length);
+    }
+
+    /**
+     * Get a read only, little endian view over the rest of the current chunk, without copying it.
+     * <p>
+     * Typed views such as {@link ByteBuffer#asFloatBuffer()} may be taken from the result. The current position
+     * within the chunk is not moved. The view shares the Iff data, so it is only valid until the Iff is modified.
+     *
+     * @return A buffer whose remaining bytes are the unread bytes of the current chunk.
+     */
+    public final ByteBuffer sliceChunk() {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        final int remaining = this.stackLength[depth] - this.stackUsed[depth];
+        final int position = physical(this.stackOffset[depth] + this.stackUsed[depth], remaining);
+
+        final ByteBuffer view = this.data.asReadOnlyBuffer();
+        view.position(position);
+        view.limit(position + remaining);
+
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Get a little endian view over the next bytes of the current chunk, and move past them.
+     */
+    private ByteBuffer getChunkReadView(final int size) {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        if (this.stackUsed[depth] + size > this.stackLength[depth])
+            throw new BufferOverflowException();
+
+        final int position = physical(this.stackOffset[depth] + this.stackUsed[depth], size);
+
+        this.stackUsed[depth] += size;
+
+        final ByteBuffer view = getChunkDataView(position);
+        view.limit(position + size);
+
+        return view;
+    }
+
+    /**
+     * Read a null terminated string of single byte characters.
+     * <p>
+     * The terminator is found first and the string is then decoded in a single copy. If a string pool is set, strings
+     * already in the pool are returned without decoding them again.
+     *
+     * @return The string, without its terminator.
+     */
+    public final String readString() {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        final int remaining = this.stackLength[depth] - this.stackUsed[depth];
+
+        if (remaining <= 0)
+            throw new UnsupportedOperationException("At end of chunk, cannot read.");
+
+        final int position = physical(this.stackOffset[depth] + this.stackUsed[depth], remaining);
+
+        int length = 0;
+
+        while (length < remaining && this.data.get(position + length) != 0)
+            ++length;
+
+        this.stackUsed[depth] += Math.min(length + 1, remaining); //+1 for null byte terminator.
+        this.metrics.stringRead(length);
+
+        final ByteBuffer source = getDecodeData();
+
+        return this.stringPool != null
+                ? this.stringPool.get(source, position, length)
+                : IffStringPool.decode(source, position, length);
+    }
+
+    public final String readUnicode() {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        final int length = readInt();
+
+        if (this.stackLength[depth] - this.stackUsed[depth] < length)
+            throw new BufferOverflowException();
+
+        final int position = physical(this.stackOffset[depth] + this.stackUsed[depth], length);
+
+        this.stackUsed[depth] += length;
+        this.metrics.stringRead(length);
+
+        final ByteBuffer source = getDecodeData();
+
+        if (source.hasArray())
+            return new String(source.array(), source.arrayOffset() + position, length, StandardCharsets.UTF_16LE);
+
+        final byte[] bytes = new byte[length];
+        getChunkDataView(position).get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_16LE);
+    }
+
+    public final void enterChunk() {
+        enterChunk(0, false, false);
+    }
+
+    public final void enterChunk(final int chunkId) {
+        enterChunk(chunkId, true, false);
+    }
+
+    public final boolean enterChunk(final boolean optional) {
+        return enterChunk(0, false, optional);
+    }
+
+    public final boolean enterChunk(final int chunkId, final boolean optional) {
+        return enterChunk(chunkId, true, optional);
+    }
+
+    public final boolean enterChunk(final int chunkId, boolean validateName, boolean optional) {
+        if (chunkId != 0 && validateName) {
+            final int nextChunkId = getFirstTag(this.stackDepth);
+
+            if (nextChunkId != chunkId) {
+                throw new IllegalArgumentException(String.format("Expected chunk [%s] but found [%s].",
+                        Iff.getChunkName(chunkId),
+                        Iff.getChunkName(nextChunkId)));
+            }
+        }
+
+        if (!this.inChunk && !isAtEndOfForm() && isCurrentChunk()
+                && (!validateName || getFirstTag(this.stackDepth) == chunkId)) {
+            pushStack(this.stackOffset[this.stackDepth] + this.stackUsed[this.stackDepth] + CHUNK_HEADER_SIZE,
+                    getLength(this.stackDepth, 0),
+                    this.index != null ? getCurrentNode() : IffIndex.NONE);
+            this.inChunk = true;
+            this.metrics.chunkEntered();
+
+            return true;
+        }
+
+        if (!optional)
+            throw new IllegalStateException(String.format("Enter chunk [%s] failed.", Iff.getChunkName(chunkId)));
+
+        return false;
+    }
+
+    public final void enterForm() {
+        enterForm(0);
+    }
+
+    public final void enterForm(final int formId) {
+        if (formId != 0) {
+            final int nextFormId = getSecondTag(this.stackDepth);
+
+            if (nextFormId != formId) {
+                throw new IllegalArgumentException(String.format("Expected form [%s] but found [%s].",
+                        Iff.getChunkName(formId),
+                        Iff.getChunkName(nextFormId)));
+            }
+        }
+
+        if (!this.inChunk && !isAtEndOfForm() && isCurrentForm()) {
+            pushStack(this.stackOffset[this.stackDepth] + this.stackUsed[this.stackDepth] + GROUP_HEADER_SIZE,
+                    getLength(this.stackDepth, 0) - 4,
+                    this.index != null ? getCurrentNode() : IffIndex.NONE);
+            this.inChunk = false;
+            this.metrics.formEntered();
+        }
+    }
+
+    public final void exitChunk() {
+        exitChunk(0);
+    }
+
+    public final void exitChunk(final int chunkId) {
+        if (chunkId != 0) {
+            final int prevChunkId = getFirstTag(this.stackDepth - 1);
+
+            if (prevChunkId != chunkId) {
+                throw new IllegalArgumentException(String.format("Trying to exit chunk [%s] but found [%s].",
+                        Iff.getChunkName(chunkId),
+                        Iff.getChunkName(prevChunkId)));
+            }
+        }
+
+        assert inChunk : "not in chunk";
+
+        this.metrics.chunkExited(this.stackUsed[this.stackDepth]);
+        this.stackUsed[this.stackDepth - 1] += this.stackLength[this.stackDepth] + CHUNK_HEADER_SIZE;
+        ++this.stackCursor[this.stackDepth - 1];
+
+        --this.stackDepth;
+        this.inChunk = false;
+    }
+
+    public final void exitForm() {
+        exitForm(0);
+    }
+
+    public final void exitForm(final int formId) {
+        if (this.stackDepth == 0)
+            throw new IllegalArgumentException("Trying to exit root.");
+
+        if (formId != 0) {
+            final int prevFormId = getSecondTag(this.stackDepth - 1);
+
+            if (prevFormId != formId) {
+                throw new IllegalArgumentException(String.format("Trying to exit form [%s] but found [%s].",
+                        Iff.getChunkName(formId),
+                        Iff.getChunkName(prevFormId)));
+            }
+        }
+
+        if (this.inChunk)
+            throw new IllegalArgumentException("Tried to exit a form while within a chunk.");
+
+        this.stackUsed[this.stackDepth - 1] += this.stackLength[this.stackDepth] + GROUP_HEADER_SIZE;
+        ++this.stackCursor[this.stackDepth - 1];
+        --this.stackDepth;
+        this.inChunk = false;
+    }
+
+    public void insertForm(int nameTag) {
+        insertForm(nameTag, true);
+    }
+
+    /**
+     * Insert a new form into the Iff at the current location.
+     * <p>
+     * This routine will handle adding a form into the middle of an existing
+     * Iff instance.
+     * <p>
+     * If the Iff is already inside a chunk, this routine will call Fatal for
+     * debug compiles, but will have undefined behavior in release compiles.
+     *
+     * @param nameTag         int for the new form
+     * @param shouldEnterForm True to automatically enter the form
+     */
+
+    public void insertForm(int nameTag, boolean shouldEnterForm) {
+        Preconditions.checkNotNull(data);
+        Preconditions.checkArgument(!inChunk, "inside chunk");
+
+        // make sure the data array can handle this addition
+        adjustDataAsNeeded(GROUP_HEADER_SIZE);
+
+        // compute the offset to start inserting data at
+        final int offset = getCursorOffset();
+
+        // add the form header
+        data.putInt(offset, endianSwap32(TAG_FORM));
+
+        // add the size of the form
+        data.putInt(offset + 4, endianSwap32(4));
+
+        // add the real form name
+        data.putInt(offset + 8, endianSwap32(nameTag));
+
+        // enter the form if requested
+        if (shouldEnterForm)
+            enterForm();
+    }
+
+    public void insertChunk(int tagName) {
+        insertChunk(tagName, true);
+    }
+
+    /**
+     * Insert a new chunk into the Iff at the current location.
+     * <p>
+     * This routine will handle adding a chunk into the middle of an existing
+     * Iff instance.
+     * <p>
+     * If the Iff is already inside a chunk, this routine will call Fatal for
+     * debug compiles, but will have undefined behavior in release compiles.
+     *
+     * @param tagName          Name for the new form
+     * @param shouldEnterChunk True to automatically enter the chunk
+     */
+
+    public void insertChunk(int tagName, boolean shouldEnterChunk) {
+        Preconditions.checkNotNull(data);
+        Preconditions.checkArgument(!inChunk, "inside chunk");
+
+        // make sure the data array can handle this addition
+        adjustDataAsNeeded(CHUNK_HEADER_SIZE);
+
+        // compute the offset to start inserting data at
+        final int offset = getCursorOffset();
+
+        // add the form header
+        data.putInt(offset, endianSwap32(tagName));
+
+        // add the size of the chunk
+        data.putInt(offset + 4, 0);
+
+        // enter the chunk if requested
+        if (shouldEnterChunk)
+            enterChunk();
+    }
+
+    public boolean write(final String writeFileName) {
+        return write(writeFileName, false);
+    }
+
+    public boolean write(final String writeFileName, boolean optional) {
+        try {
+            write(Paths.get(writeFileName), false);
+            return true;
+        } catch (IOException e) {
+            Preconditions.checkArgument(!optional, String.format("file write failed for %s", writeFileName));
+            return false;
+        }
+    }
+
+    /**
+     * Write the Iff data to a file, replacing it if it exists.
+     * <p>
+     * Only the used bytes of the data are written, not the spare capacity of the buffer. The data is written to a
+     * temporary file which is then renamed over the target, so readers never see a partially written file.
+     *
+     * @param path The path of the file to write.
+     * @param sync True to force the data to the storage device before the file is replaced.
+     * @throws IOException If the file could not be written.
+     */
+    public void write(final Path path, final boolean sync) throws IOException {
+        final long start = metrics != IffMetrics.NONE ? System.nanoTime() : 0;
+
+        IffFiles.write(path, getSharedData(), sync);
+        fileName = path.toString();
+
+        if (metrics != IffMetrics.NONE)
+            metrics.fileWritten(fileName, stackLength[0], System.nanoTime() - start);
+    }
+
+    /**
+     * Write many Iffs to files in one call.
+     * <p>
+     * Every Iff is first written to a temporary file beside its target, and the targets are only replaced once all of
+     * the temporary files have been written, so a failed write leaves every target untouched. Forcing the data to the
+     * storage device is done for each temporary file before any target is replaced, and for the directory of each target
+     * once it has been replaced.
+     *
+     * @param iffs The Iffs to write, by the path of the file to write each to.
+     * @param sync True to force the data to the storage device before the files are replaced.
+     * @throws IOException If a file could not be written.
+     */
+    public static void write(final Map<Path, Iff> iffs, final boolean sync) throws IOException {
+        final Path[] paths = new Path[iffs.size()];
+        final Path[] temps = new Path[paths.length];
+        final Iff[] written = new Iff[paths.length];
+        final long[] nanos = new long[paths.length];
+        int count = 0;
+
+        try {
+            for (final Map.Entry<Path, Iff> entry : iffs.entrySet()) {
+                final long start = System.nanoTime();
+
+                paths[count] = entry.getKey();
+                written[count] = entry.getValue();
+                temps[count] = IffFiles.writeTemp(entry.getKey(), entry.getValue().getSharedData(), sync);
+                nanos[count++] = System.nanoTime() - start;
+            }
+        } catch (final IOException | RuntimeException e) {
+            for (int index = 0; index < count; ++index)
+                Files.deleteIfExists(temps[index]);
+
+            throw e;
+        }
+
+        for (int index = 0; index < count; ++index) {
+            final long start = System.nanoTime();
+            final Iff iff = written[index];
+
+            try {
+                IffFiles.move(temps[index], paths[index], sync);
+            } catch (final IOException | RuntimeException e) {
+                for (int remaining = index; remaining < count; ++remaining)
+                    Files.deleteIfExists(temps[remaining]);
+
+                throw e;
+            }
+
+            iff.fileName = paths[index].toString();
+
+            if (iff.metrics != IffMetrics.NONE)
+                iff.metrics.fileWritten(iff.fileName, iff.stackLength[0], nanos[index] + System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Write the used bytes of the Iff data to a channel.
+     */
+    public void writeTo(final WritableByteChannel channel) throws IOException {
+        final ByteBuffer buffer = getSharedData();
+
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    public void close() {
+        fileName = null;
+        data.clear();  //lint !e672 // possible memory leak in assignment to Iff::data // no, we only delete when we own it
+        stackDepth = 0;
+    }
+
+    /**
+     * Give the data buffer back to the allocator it came from, leaving this Iff empty.
+     * <p>
+     * Nothing is given back for data the Iff was constructed over. The Iff must not be used after it is released,
+     * nor may any array or view of its data be.
+     */
+    public void release() {
+        resetData(null, ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * Reuse this Iff to read another file, without allocating a new cursor or navigation stack.
+     * <p>
+     * The Iff is positioned at the start of the new data, as if it had just been constructed over it. Its string
+     * pool, metrics and allocator are kept, its index is dropped, and any buffer it owned is given back to its
+     * allocator.
+     *
+     * @param fileName The name of the file this data came from.
+     * @param bytes    The Iff data.
+     */
+    public void reset(final String fileName, final byte[] bytes) {
+        resetData(fileName, ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * Reuse this Iff to read another file over an existing buffer, without copying it.
+     * <p>
+     * The remaining bytes of the buffer, from its position to its limit, are treated as the Iff data, as with
+     * {@link #Iff(String, ByteBuffer)}.
+     *
+     * @param fileName The name of the file this data came from.
+     * @param buffer   The buffer holding the Iff data.
+     * @see #reset(String, byte[])
+     */
+    public void reset(final String fileName, final ByteBuffer buffer) {
+        resetData(fileName, buffer.slice().order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    private void resetData(final String fileName, final ByteBuffer newData) {
+        if (ownsData)
+            allocator.release(data);
+
+        final int length = newData.remaining();
+
+        this.fileName = fileName;
+        this.data = newData;
+        this.arrayData = null;
+        this.ownsData = false;
+        this.index = null;
+        this.stackDepth = 0;
+        this.inChunk = false;
+        this.stackOffset[0] = 0;
+        this.stackLength[0] = length;
+        this.stackUsed[0] = 0;
+        this.stackNode[0] = IffIndex.ROOT;
+        this.stackCursor[0] = 0;
+        this.gapStart = length;
+        this.gapLength = 0;
+    }
+
+    /**
+     * Adjust the data array as necessary.
+     * <p>
+     * The data array is kept as a gap buffer: all of its free space is a single gap that is moved to the
+     * current location before data is inserted or removed there. Repeated insertions at one location only
+     * cost the size of the data inserted, and moving the gap only copies the data between its old and new
+     * location.
+     * <p>
+     * The data array will be doubled in size if it does need to be grown until it
+     * will hold the specified amount of data.
+     * <p>
+     * This routine will also handle size being negative, in which case it will
+     * remove the specified number of bytes from the current location in the Iff.
+     *
+     * @param size Delta number of bytes
+     */
+
+    public void adjustDataAsNeeded(int size) {
+        // any index no longer matches the data
+        index = null;
+
+        // calculate the final required size of the data array
+        final int neededLength = stackLength[0] + size;
+        final int offset = getCursorOffset();
+
+        assert neededLength >= 0 : ("data size underflow");
+        assert offset - Math.min(size, 0) <= stackLength[0] : ("removing past the end of the data");
+
+        // check if we need to expand the data array, or take a private copy of read only data
+        if (size > gapLength || (size != 0 && data.isReadOnly()))
+            growData(neededLength);
+
+        // move the gap to the current location, and either fill the start of it or extend it over the removed data
+        moveGap(offset);
+
+        if (size > 0)
+            gapStart += size;
+
+        gapLength -= size;
+
+        // make sure all the enclosing stack entries know about the changed size
+        for (int i = 0; i <= stackDepth; ++i) {
+            // update the stack's idea of the block length
+            stackLength[i] += size;
+
+            // the length of level 0 is the file size, so we should not write it
+            if (i != 0) {
+                // update the data's idea of the block length
+                if (i == stackDepth && inChunk) {
+                    data.putInt(stackOffset[i] - 4, endianSwap32(stackLength[i]));
+                } else {
+                    data.putInt(stackOffset[i] - 8, endianSwap32(stackLength[i] + 4));
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Replace the data array with a larger one, doubling in size until it holds the needed length.
+     * <p>
+     * Only the data on either side of the gap is copied, and the gap stays where it is.
+     */
+    private void growData(final int neededLength) {
+        final int length = stackLength[0];
+        final int tailLength = length - gapStart;
+
+        int newLength = Math.max(data.capacity(), 1);
+
+        while (newLength < neededLength)
+            newLength *= 2;
+
+        final ByteBuffer newData = allocator.allocate(newLength).order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer source = data.duplicate();
+
+        newLength = newData.capacity();
+        newData.clear();
+
+        source.clear();
+        source.limit(gapStart);
+        newData.put(source);
+
+        source.limit(gapStart + gapLength + tailLength);
+        source.position(gapStart + gapLength);
+        newData.position(newLength - tailLength);
+        newData.put(source);
+        newData.clear();
+
+        metrics.resized(data.capacity(), newLength);
+        metrics.moved(length);
+
+        if (ownsData)
+            allocator.release(data);
+
+        data = newData;
+        arrayData = null;
+        ownsData = true;
+        gapLength = newLength - length;
+    }
+
+    /**
+     * Move the gap so that it starts at the given offset, shifting the data between its old and new location.
+     */
+    private void moveGap(final int offset) {
+        if (offset == gapStart)
+            return;
+
+        if (gapLength != 0) {
+            if (offset < gapStart) {
+                moveData(offset, offset + gapLength, gapStart - offset);
+            } else {
+                moveData(gapStart + gapLength, gapStart, offset - gapStart);
+            }
+        }
+
+        gapStart = offset;
+    }
+
+    private void moveData(final int from, final int to, final int length) {
+        metrics.moved(length);
+
+        if (data.hasArray()) {
+            final byte[] array = data.array();
+            System.arraycopy(array, data.arrayOffset() + from, array, data.arrayOffset() + to, length);
+        } else if (Math.abs(from - to) >= length) {
+            copyData(from, to, length);
+        } else {
+            //Overlapping ranges are copied through a scratch array, a piece at a time, in the direction of the move so
+            //that no piece is overwritten before it has been read.
+            final byte[] scratch = new byte[Math.min(length, MOVE_SCRATCH_SIZE)];
+
+            for (int done = 0; done < length; done += scratch.length) {
+                final int count = Math.min(scratch.length, length - done);
+                final int offset = from > to ? done : length - done - count;
+
+                final ByteBuffer source = data.duplicate();
+                source.clear();
+                source.position(from + offset);
+                source.get(scratch, 0, count);
+
+                final ByteBuffer target = data.duplicate();
+                target.clear();
+                target.position(to + offset);
+                target.put(scratch, 0, count);
+            }
+        }
+    }
+
+    /**
+     * Copy a range of the data to a range which does not overlap it, in bulk.
+     */
+    private void copyData(final int from, final int to, final int length) {
+        final ByteBuffer source = data.duplicate();
+        source.clear();
+        source.limit(from + length);
+        source.position(from);
+
+        final ByteBuffer target = data.duplicate();
+        target.clear();
+        target.position(to);
+        target.put(source);
+    }
+
+    /**
+     * Translate an offset into the Iff data to a position in the data array, skipping over the gap.
+     * <p>
+     * If a value of the given size would straddle the gap, the gap is moved past it first.
+     *
+     * @param offset The offset of the value within the Iff data.
+     * @param size   The size of the value in bytes.
+     * @return The position of the value in the data array.
+     */
+    private int physical(final int offset, final int size) {
+        if (offset + size <= gapStart || gapLength == 0)
+            return offset;
+
+        if (offset >= gapStart)
+            return offset + gapLength;
+
+        moveGap(offset + size);
+        return offset;
+    }
+
+    /**
+     * @return The offset of the current position from the start of the Iff data.
+     */
+    int getCursorOffset() {
+        return stackOffset[stackDepth] + stackUsed[stackDepth];
+    }
+
+    /**
+     * Get a read only view of the Iff data, so that it can be read by other cursors without being copied. The view is
+     * only valid until the data is next modified.
+     */
+    ByteBuffer getSharedData() {
+        moveGap(stackLength[0]);
+
+        final ByteBuffer view = data.asReadOnlyBuffer();
+        view.clear();
+        view.limit(stackLength[0]);
+
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Get a view of the same bytes as {@link #getSharedData()} which is backed by an array, for decoding strings without
+     * copying them first. The view must never be written to.
+     *
+     * @return The view, or null if the data has no array behind it.
+     */
+    ByteBuffer getSharedArrayData() {
+        final ByteBuffer source = getDecodeData();
+
+        if (!source.hasArray())
+            return null;
+
+        moveGap(stackLength[0]);
+
+        final ByteBuffer view = source.duplicate();
+        view.clear();
+        view.limit(stackLength[0]);
+
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return The buffer to decode strings from; the array behind read only shared data if there is one.
+     */
+    private ByteBuffer getDecodeData() {
+        return arrayData != null ? arrayData : data;
+    }
+
+    /**
+     * Insert data into the current chunk at the current location.
+     * <p>
+     * This routine will handle adding data into the middle of an existing
+     * chunk.  The current position pointer will be moved to the end of
+     * the inserted data.
+     * <p>
+     * If the Iff is not inside a chunk, this routine will call Fatal for
+     * debug compiles, but will have undefined behavior in release compiles.
+     *
+     * @param newData boolean to put into the chunk
+     */
+    public void insertChunkData(final boolean newData) {
+        insertChunkData((byte) (newData ? 1 : 0));
+    }
+
+    public void insertChunkData(final byte newData) {
+        final int offset = reserveChunkData(1);
+        data.put(offset, newData);
+    }
+
+    public void insertChunkData(final short newData) {
+        final int offset = reserveChunkData(2);
+        data.putShort(offset, newData);
+    }
+
+    public void insertChunkData(final int newData) {
+        final int offset = reserveChunkData(4);
+        data.putInt(offset, newData);
+    }
+
+    public void insertChunkData(final long newData) {
+        final int offset = reserveChunkData(8);
+        data.putLong(offset, newData);
+    }
+
+    public void insertChunkData(final float newData) {
+        final int offset = reserveChunkData(4);
+        data.putFloat(offset, newData);
+    }
+
+    public void insertChunkData(final String newData) {
+        Preconditions.checkNotNull(newData);
+
+        final byte[] bytes = newData.getBytes(StandardCharsets.ISO_8859_1);
+        final int offset = reserveChunkData(bytes.length + 1);
+
+        getChunkDataView(offset).put(bytes);
+        data.put(offset + bytes.length, (byte) 0);
+    }
+
+    /**
+     * Insert a range of bytes into the current chunk at the current location.
+     * <p>
+     * The space for all of the data is made with a single call to adjustDataAsNeeded,
+     * and the data is then copied in one block.
+     *
+     * @param newData Array holding the data to insert
+     * @param offset  Index of the first element to insert
+     * @param length  Number of elements to insert
+     */
+    public void insertChunkData(final byte[] newData, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, newData.length);
+        final int position = reserveChunkData(length);
+        getChunkDataView(position).put(newData, offset, length);
+    }
+
+    public void insertChunkData(final byte[] newData) {
+        insertChunkData(newData, 0, newData.length);
+    }
+
+    public void insertChunkData(final short[] newData, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, newData.length);
+        final int position = reserveChunkData(length * 2);
+        getChunkDataView(position).asShortBuffer().put(newData, offset, length);
+    }
+
+    public void insertChunkData(final short[] newData) {
+        insertChunkData(newData, 0, newData.length);
+    }
+
+    public void insertChunkData(final int[] newData, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, newData.length);
+        final int position = reserveChunkData(length * 4);
+        getChunkDataView(position).asIntBuffer().put(newData, offset, length);
+    }
+
+    public void insertChunkData(final int[] newData) {
+        insertChunkData(newData, 0, newData.length);
+    }
+
+    public void insertChunkData(final long[] newData, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, newData.length);
+        final int position = reserveChunkData(length * 8);
+        getChunkDataView(position).asLongBuffer().put(newData, offset, length);
+    }
+
+    public void insertChunkData(final long[] newData) {
+        insertChunkData(newData, 0, newData.length);
+    }
+
+    public void insertChunkData(final float[] newData, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, newData.length);
+        final int position = reserveChunkData(length * 4);
+        getChunkDataView(position).asFloatBuffer().put(newData, offset, length);
+    }
+
+    public void insertChunkData(final float[] newData) {
+        insertChunkData(newData, 0, newData.length);
+    }
+
+    /**
+     * Insert the remaining bytes of a buffer into the current chunk at the current location.
+     * The position of the buffer is moved to its limit.
+     *
+     * @param newData Buffer holding the data to insert
+     */
+    public void insertChunkData(final ByteBuffer newData) {
+        final int position = reserveChunkData(newData.remaining());
+        getChunkDataView(position).put(newData);
+    }
+
+    /**
+     * Make room for data in the current chunk at the current location.
+     * <p>
+     * The current position pointer is moved to the end of the reserved space.
+     *
+     * @param size Number of bytes to make room for
+     * @return The offset in the data array to write the new data at
+     */
+    private int reserveChunkData(final int size) {
+        Preconditions.checkArgument(inChunk, "not in chunk");
+
+        // compute the offset to start inserting data at
+        final int offset = getCursorOffset();
+
+        // make sure the data array can handle this addition
+        adjustDataAsNeeded(size);
+
+        // move the current pointer to the end of the inserted data
+        stackUsed[stackDepth] += size;
+
+        return offset;
+    }
+
+    /**
+     * Get a little endian view of the data array positioned at the given offset, for copying data in bulk.
+     */
+    private ByteBuffer getChunkDataView(final int offset) {
+        final ByteBuffer view = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        view.position(offset);
+        return view;
+    }
+
+    /**
+     * Insert a string into the current chunk at the current location.
+     * <p>
+     * This routine will call insertChunkData(const void *, int length)
+     * with the string using its string length (plus one for the null
+     * terminator).
+     */
+
+    public void insertChunkString(final String value) {
+        Preconditions.checkNotNull(value);
+        insertChunkData(value);
+    }
+
+    public final int getBlockName(int depth) {
+        int value = getFirstTag(depth);
+
+        if (isGroupChunkId(value))
+            value = getSecondTag(depth);
+
+        return value;
+    }
+
+    public final int getNumberOfBlocksLeft() {
+        if (this.inChunk)
+            throw new UnsupportedOperationException("Cannot get number of blocks left while in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        if (this.stackUsed[depth] >= this.stackLength[depth])
+            return 0;
+
+        if (this.index != null)
+            return this.index.getChildCount(this.stackNode[depth]) - this.index.getOrdinal(getCurrentNode());
+
+        int count = 0;
+        int offset = 0;
+
+        while (offset + this.stackUsed[depth] < this.stackLength[depth]) {
+            offset += getLength(this.stackDepth, offset) + CHUNK_HEADER_SIZE;
+            ++count;
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the total number of blocks in the current form, regardless of the current position within it.
+     *
+     * @return The number of child blocks.
+     */
+    public final int getNumberOfBlocks() {
+        if (this.inChunk)
+            throw new UnsupportedOperationException("Cannot get number of blocks while in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        if (this.index != null)
+            return this.index.getChildCount(this.stackNode[depth]);
+
+        final int used = this.stackUsed[depth];
+        this.stackUsed[depth] = 0;
+
+        try {
+            return getNumberOfBlocksLeft();
+        } finally {
+            this.stackUsed[depth] = used;
+        }
+    }
+
+    public final boolean isCurrentChunk() {
+        return !Iff.isGroupChunkId(getFirstTag(this.stackDepth));
+    }
+
+    public final boolean isCurrentForm() {
+        return getFirstTag(this.stackDepth) == TAG_FORM;
+    }
+
+    public final int getCurrentName() {
+        return getBlockName(this.stackDepth);
+    }
+
+    public final int getCurrentLength() {
+        return getLength(this.stackDepth, 0);
+    }
+
+    public final int getChunkLengthTotal(int elementSize) {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        int lengthMod = this.stackLength[depth] % elementSize;
+        int lengthDiv = this.stackLength[depth] / elementSize;
+
+        if (this.stackLength[depth] % elementSize != 0) {
+            throw new IllegalArgumentException(String.format("%d is not a multiple of %d.",
+                    lengthMod,
+                    lengthDiv));
+        }
+
+        return lengthDiv;
+    }
+
+    public final int getChunkLengthLeft() {
+        return getChunkLengthLeft(1);
+    }
+
+    public final int getChunkLengthLeft(int elementSize) {
+        if (!this.inChunk)
+            throw new UnsupportedOperationException("Not in a chunk.");
+
+        final int depth = this.stackDepth;
+
+        int remaining = this.stackLength[depth] - this.stackUsed[depth];
+
+        int remainingMod = remaining % elementSize;
+        int remainingDiv = remaining / elementSize;
+
+        if (remainingMod != 0) {
+            throw new IllegalArgumentException(String.format("%d is not a multiple of %d.",
+                    remainingMod,
+                    remainingDiv));
+        }
+
+        return remainingDiv;
+    }
+
+    private final int getFirstTag(int depth) {
+        if (this.stackLength[depth] - this.stackUsed[depth] < CHUNK_HEADER_SIZE)
+            throw new BufferOverflowException();
+
+        return Iff.endianSwap32(data.getInt(physical(this.stackOffset[depth] + this.stackUsed[depth], 4)));
+    }
+
+    private final int getSecondTag(int depth) {
+        if (this.stackLength[depth] - this.stackUsed[depth] < GROUP_HEADER_SIZE)
+            throw new BufferOverflowException();
+
+        return Iff.endianSwap32(data.getInt(physical(this.stackOffset[depth] + this.stackUsed[depth] + CHUNK_HEADER_SIZE, 4)));
+    }
+
+    public final boolean isAtEndOfForm() {
+        return this.stackUsed[this.stackDepth] == this.stackLength[this.stackDepth];
+    }
+
+    private final int getLength(int depth, int offset) {
+        if (offset + this.stackLength[depth] - this.stackUsed[depth] < CHUNK_HEADER_SIZE)
+            throw new BufferOverflowException();
+
+        return Iff.endianSwap32(data.getInt(physical(offset + 4 + this.stackUsed[depth] + this.stackOffset[depth], 4)));
+    }
+
+    public final void goToTopOfForm() {
+        if (this.inChunk)
+            throw new UnsupportedOperationException("Cannot go to the top of form while in a chunk.");
+
+        this.stackUsed[this.stackDepth] = 0;
+        this.stackCursor[this.stackDepth] = 0;
+    }
+
+    public final void goForward(int count) {
+        if (this.inChunk)
+            throw new UnsupportedOperationException("Cannot go forward when in a chunk.");
+
+        if (this.index != null && count > 0 && !isAtEndOfForm()) {
+            moveToBlock(this.index.getOrdinal(getCurrentNode()) + count);
+            return;
+        }
+
+        for (int remaining = count; remaining > 0 && !isAtEndOfForm(); --remaining)
+            this.stackUsed[this.stackDepth] += getLength(this.stackDepth, 0) + CHUNK_HEADER_SIZE;
+    }
+
+    /**
+     * Move to the block at the given position within the current form.
+     *
+     * @param blockIndex The zero based position of the block. Positions past the last block move to the end of the form.
+     */
+    public final void goToBlock(int blockIndex) {
+        if (this.inChunk)
+            throw new UnsupportedOperationException("Cannot go to a block when in a chunk.");
+
+        if (this.index != null) {
+            moveToBlock(blockIndex);
+        } else {
+            goToTopOfForm();
+            goForward(blockIndex);
+        }
+    }
+
+    private void moveToBlock(final int ordinal) {
+        final int depth = this.stackDepth;
+        final int node = this.index.getChild(this.stackNode[depth], ordinal);
+
+        if (node == IffIndex.NONE) {
+            this.stackUsed[depth] = this.stackLength[depth];
+            this.stackCursor[depth] = this.index.getChildCount(this.stackNode[depth]);
+        } else {
+            this.stackUsed[depth] = this.index.getOffset(node) - this.stackOffset[depth];
+            this.stackCursor[depth] = ordinal;
+        }
+    }
+
+    /**
+     * Get the index node of the block at the current position. Only valid while an index is present.
+     */
+    private int getCurrentNode() {
+        final int depth = this.stackDepth;
+        final int node = this.index.findChildAt(this.stackNode[depth],
+                this.stackOffset[depth] + this.stackUsed[depth],
+                this.stackCursor[depth]);
+
+        if (node != IffIndex.NONE)
+            this.stackCursor[depth] = this.index.getOrdinal(node);
+
+        return node;
+    }
+
+    public final boolean seekForm(final int formId) {
+        return seek(formId, BlockType.Form);
+    }
+
+    public final boolean seekChunk(final int chunkId) {
+        return seek(chunkId, BlockType.Chunk);
+    }
+
+    private void seekWithinChunk(int offset, final SeekType seekType) {
+        switch (seekType) {
+            case Begin:
+                stackUsed[stackDepth] = offset;
+                break;
+
+            case Current:
+                stackUsed[stackDepth] += offset;
+                break;
+
+            case End:
+                stackUsed[stackDepth] = stackLength[stackDepth] + offset;
+                break;
+        }
+    }
+
+    private final boolean seek(final int chunkId, final BlockType blockType) {
+        assert !inChunk : "in chunk";
+
+        if (index != null)
+            return seekIndexed(chunkId, blockType);
+
+        int steps = 0;
+
+        while (!isAtEndOfForm()) {
+            ++steps;
+
+            if (getCurrentName() == chunkId
+                    && (blockType == BlockType.Either
+                    || (blockType == BlockType.Form && isCurrentForm()
+                    || (blockType == BlockType.Chunk && isCurrentChunk())))) {
+                metrics.seeked(steps);
+                return true;
+            }
+
+            stackUsed[stackDepth] += (getLength(stackDepth, 0) + CHUNK_HEADER_SIZE);
+        }
+
+        metrics.seeked(steps);
+        return false;
+    }
+
+    private boolean seekIndexed(final int chunkId, final BlockType blockType) {
+        final int depth = stackDepth;
+
+        if (isAtEndOfForm())
+            return false;
+
+        int node = index.findChild(stackNode[depth], chunkId, index.getOrdinal(getCurrentNode()));
+        metrics.seeked(1);
+
+        while (node != IffIndex.NONE) {
+            if (blockType == BlockType.Either
+                    || (blockType == BlockType.Form && index.isForm(node))
+                    || (blockType == BlockType.Chunk && index.isChunk(node))) {
+                stackUsed[depth] = index.getOffset(node) - stackOffset[depth];
+                stackCursor[depth] = index.getOrdinal(node);
+                return true;
+            }
+
+            node = index.findChild(stackNode[depth], chunkId, index.getOrdinal(node) + 1);
+        }
+
+        stackUsed[depth] = stackLength[depth];
+        stackCursor[depth] = index.getChildCount(stackNode[depth]);
+        return false;
+    }
+
+    public enum SeekType {
+        Begin,
+        Current,
+        End
+    }
+
+    public enum BlockType {
+        Either,
+        Form,
+        Chunk
+    }
+}
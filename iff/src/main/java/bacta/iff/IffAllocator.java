@@ -0,0 +1,36 @@
+package bacta.iff;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocates the data buffers of Iffs that are built in memory.
+ * <p>
+ * An Iff asks its allocator for a buffer when it is constructed for writing and each time it grows, and gives back the
+ * buffer it replaced, or its last buffer when {@link Iff#release()} is called. Buffers that an Iff was constructed
+ * over are never given back.
+ * <p>
+ * Implementations may be called from many threads at once.
+ */
+public interface IffAllocator {
+    /**
+     * Allocates a new buffer on the heap for every request, and leaves released buffers to the garbage collector.
+     */
+    IffAllocator HEAP = ByteBuffer::allocate;
+
+    /**
+     * Allocates a new direct buffer for every request, and leaves released buffers to the garbage collector.
+     */
+    IffAllocator DIRECT = ByteBuffer::allocateDirect;
+
+    /**
+     * @param capacity The minimum capacity of the buffer.
+     * @return A buffer of at least the capacity. Its content, position, limit and byte order are not significant.
+     */
+    ByteBuffer allocate(final int capacity);
+
+    /**
+     * Give back a buffer that was allocated by this allocator and is no longer used.
+     */
+    default void release(final ByteBuffer buffer) {
+    }
+}
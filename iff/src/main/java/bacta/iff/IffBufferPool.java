@@ -0,0 +1,158 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * An {@link IffAllocator} that keeps released buffers for reuse.
+ * <p>
+ * Buffers are allocated in power of two size classes, from the minimum size up to the maximum size, and each class
+ * keeps up to a fixed number of free buffers. Requests larger than the maximum size are allocated exactly and are not
+ * kept when released. Buffers are zeroed when they are kept, so a buffer taken from the pool never exposes the data
+ * of its last use, even through the whole backing array returned by {@link Iff#getRawData()}.
+ * <p>
+ * A pool may be shared between threads.
+ */
+public final class IffBufferPool implements IffAllocator {
+    private static final int DEFAULT_MIN_SIZE = 64;
+    private static final int DEFAULT_MAX_SIZE = 1 << 20;
+    private static final int DEFAULT_BUFFERS_PER_CLASS = 64;
+
+    private final boolean direct;
+    private final int minShift;
+    private final int maxShift;
+    private final int buffersPerClass;
+    private final ConcurrentLinkedQueue<ByteBuffer>[] free;
+    private final AtomicIntegerArray freeCounts;
+
+    /**
+     * @param direct          True to allocate direct buffers, false for heap buffers.
+     * @param minSize         The size of the smallest class. It is rounded up to a power of two.
+     * @param maxSize         The size of the largest class. It is rounded up to a power of two.
+     * @param buffersPerClass The most free buffers kept for each class.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public IffBufferPool(final boolean direct, final int minSize, final int maxSize, final int buffersPerClass) {
+        Preconditions.checkArgument(minSize > 0, "minimum size must be positive");
+        Preconditions.checkArgument(maxSize >= minSize && maxSize <= 1 << 30, "maximum size out of range");
+        Preconditions.checkArgument(buffersPerClass >= 0, "buffers per class must not be negative");
+
+        this.direct = direct;
+        this.minShift = shiftFor(minSize);
+        this.maxShift = shiftFor(maxSize);
+        this.buffersPerClass = buffersPerClass;
+        this.free = new ConcurrentLinkedQueue[maxShift - minShift + 1];
+        this.freeCounts = new AtomicIntegerArray(free.length);
+
+        for (int index = 0; index < free.length; ++index)
+            free[index] = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * @return A pool of heap buffers from 64 bytes to 1MB, keeping up to 64 free buffers of each size.
+     */
+    public static IffBufferPool heap() {
+        return new IffBufferPool(false, DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_BUFFERS_PER_CLASS);
+    }
+
+    /**
+     * @return A pool of direct buffers from 64 bytes to 1MB, keeping up to 64 free buffers of each size.
+     */
+    public static IffBufferPool direct() {
+        return new IffBufferPool(true, DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_BUFFERS_PER_CLASS);
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * @return The number of free buffers currently kept by the pool.
+     */
+    public int getFreeCount() {
+        int count = 0;
+
+        for (int index = 0; index < free.length; ++index)
+            count += freeCounts.get(index);
+
+        return count;
+    }
+
+    @Override
+    public ByteBuffer allocate(final int capacity) {
+        Preconditions.checkArgument(capacity >= 0, "capacity must not be negative");
+
+        final int shift = Math.max(shiftFor(Math.max(capacity, 1)), minShift);
+
+        if (shift > maxShift)
+            return newBuffer(capacity);
+
+        final int sizeClass = shift - minShift;
+        final ByteBuffer buffer = free[sizeClass].poll();
+
+        if (buffer == null)
+            return newBuffer(1 << shift);
+
+        freeCounts.decrementAndGet(sizeClass);
+        buffer.clear();
+
+        return buffer;
+    }
+
+    /**
+     * Keep a buffer for reuse if it belongs to a size class with room for it, otherwise drop it.
+     */
+    @Override
+    public void release(final ByteBuffer buffer) {
+        final int capacity = buffer.capacity();
+
+        if (buffer.isDirect() != direct || buffer.isReadOnly() || Integer.bitCount(capacity) != 1)
+            return;
+
+        final int shift = Integer.numberOfTrailingZeros(capacity);
+
+        if (shift < minShift || shift > maxShift)
+            return;
+
+        final int sizeClass = shift - minShift;
+
+        if (freeCounts.incrementAndGet(sizeClass) > buffersPerClass) {
+            freeCounts.decrementAndGet(sizeClass);
+            return;
+        }
+
+        zero(buffer);
+        free[sizeClass].offer(buffer);
+    }
+
+    private static void zero(final ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            Arrays.fill(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.capacity(), (byte) 0);
+            return;
+        }
+
+        final ByteBuffer view = buffer.duplicate();
+        view.clear();
+
+        while (view.remaining() >= 8)
+            view.putLong(0);
+
+        while (view.hasRemaining())
+            view.put((byte) 0);
+    }
+
+    private ByteBuffer newBuffer(final int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * @return The exponent of the smallest power of two that is at least the size.
+     */
+    private static int shiftFor(final int size) {
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
@@ -0,0 +1,220 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read only bundle of many Iff files packed into one file by {@link IffBundleWriter}.
+ * <p>
+ * A bundle is laid out for opening with a single memory mapping. All values are little endian.
+ * <pre>
+ * header   magic "IFFB", version, entry count, name block length       16 bytes
+ * entries  name hash (8), offset (4), length (4), name offset (4),
+ *          name length (4), sorted by hash                            24 bytes each
+ * names    the normalized names of the files, without terminators
+ * payloads the files, each starting on an 8 byte boundary
+ * </pre>
+ * Names are normalized as in {@link TreArchive}, and hashed as in {@link IffFileSystem}. A file is found by a binary
+ * search of the entries on the hash of its name, then its name is compared, so nothing is read into the heap when a
+ * bundle is opened. Files are opened as Iffs over views of the mapping, without copying.
+ * <p>
+ * A bundle is immutable and may be shared between threads.
+ */
+public final class IffBundle {
+    static final int TAG_BUNDLE = Iff.createChunkId("IFFB");
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 24;
+    static final int ALIGNMENT = 8;
+
+    private final String fileName;
+    private final ByteBuffer data;
+    private final int size;
+    private final int namesOffset;
+    private final int namesLength;
+
+    private IffBundle(final String fileName, final ByteBuffer data) throws IOException {
+        this.fileName = fileName;
+        this.data = data;
+
+        if (data.remaining() < HEADER_SIZE || Iff.endianSwap32(data.getInt(0)) != TAG_BUNDLE)
+            throw new IOException(String.format("File [%s] is not an iff bundle.", fileName));
+
+        final int version = data.getInt(4);
+
+        if (version != VERSION)
+            throw new IOException(String.format("Unsupported version %d of iff bundle [%s].", version, fileName));
+
+        this.size = data.getInt(8);
+        this.namesOffset = HEADER_SIZE + size * ENTRY_SIZE;
+        this.namesLength = data.getInt(12);
+
+        if (size < 0 || namesLength < 0 || (long) HEADER_SIZE + (long) size * ENTRY_SIZE + namesLength > data.remaining())
+            throw new IOException(String.format("Table of contents overruns iff bundle [%s].", fileName));
+    }
+
+    /**
+     * Open a bundle by memory mapping it.
+     *
+     * @throws IOException If the file could not be mapped or is not a bundle.
+     */
+    public static IffBundle open(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return of(path.toString(), buffer);
+        }
+    }
+
+    /**
+     * Open a bundle over the remaining bytes of a buffer, without copying it.
+     *
+     * @throws IOException If the buffer does not hold a bundle.
+     */
+    public static IffBundle of(final String fileName, final ByteBuffer buffer) throws IOException {
+        return new IffBundle(fileName, buffer.slice().order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return The number of files in the bundle.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The normalized name of an entry.
+     */
+    public String getName(final int entry) {
+        Preconditions.checkElementIndex(entry, size);
+
+        final int position = HEADER_SIZE + entry * ENTRY_SIZE;
+        return IffStringPool.decode(data, namesOffset + data.getInt(position + 16), data.getInt(position + 20));
+    }
+
+    /**
+     * @return The length of the file of an entry.
+     */
+    public int getLength(final int entry) {
+        Preconditions.checkElementIndex(entry, size);
+        return data.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 12);
+    }
+
+    /**
+     * Find the entry of a file by name.
+     *
+     * @param name The name of the file, which is normalized before it is looked up.
+     * @return The entry, or -1 if the bundle does not contain the file.
+     */
+    public int find(final String name) {
+        final String normalized = TreArchive.normalize(name);
+        final long hash = IffFileSystem.hash(normalized);
+
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int compare = Long.compare(getHash(middle), hash);
+
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                //Different names may share a hash, so look at every entry with it.
+                int entry = middle;
+
+                while (entry > 0 && getHash(entry - 1) == hash)
+                    --entry;
+
+                for (; entry < size && getHash(entry) == hash; ++entry) {
+                    if (nameEquals(entry, normalized))
+                        return entry;
+                }
+
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
+    public boolean contains(final String name) {
+        return find(name) != -1;
+    }
+
+    /**
+     * Open a file in the bundle as an Iff.
+     *
+     * @throws NoSuchFileException If the bundle does not contain the file.
+     * @throws IOException         If the entry of the file overruns the bundle.
+     */
+    public Iff open(final String name) throws IOException {
+        final int entry = find(name);
+
+        if (entry == -1)
+            throw new NoSuchFileException(name, fileName, null);
+
+        return open(entry);
+    }
+
+    /**
+     * Open the file of an entry as an Iff.
+     */
+    public Iff open(final int entry) throws IOException {
+        return new Iff(getName(entry), read(entry));
+    }
+
+    /**
+     * @return A read only, little endian view of the file of an entry.
+     * @throws IOException If the entry overruns the bundle.
+     */
+    public ByteBuffer read(final int entry) throws IOException {
+        Preconditions.checkElementIndex(entry, size);
+
+        final int position = HEADER_SIZE + entry * ENTRY_SIZE;
+        final int offset = data.getInt(position + 8);
+        final int length = data.getInt(position + 12);
+
+        if (offset < namesOffset + namesLength || length < 0 || (long) offset + length > data.remaining())
+            throw new IOException(String.format("Entry %d overruns iff bundle [%s].", entry, fileName));
+
+        final ByteBuffer view = data.asReadOnlyBuffer();
+        view.position(offset);
+        view.limit(offset + length);
+
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private long getHash(final int entry) {
+        return data.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+    }
+
+    private boolean nameEquals(final int entry, final String name) {
+        final int position = HEADER_SIZE + entry * ENTRY_SIZE;
+        final int nameOffset = namesOffset + data.getInt(position + 16);
+        final int nameLength = data.getInt(position + 20);
+
+        if (nameLength != name.length())
+            return false;
+
+        for (int index = 0; index < nameLength; ++index) {
+            if ((data.get(nameOffset + index) & 0xFF) != name.charAt(index))
+                return false;
+        }
+
+        return true;
+    }
+}
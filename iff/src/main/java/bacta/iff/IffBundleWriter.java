@@ -0,0 +1,246 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Packs many Iff files into a single {@link IffBundle}.
+ * <p>
+ * Files added by path are only read when the bundle is written, and are copied into it by the channel, so packing a
+ * large set of files does not hold them all in memory. The bundle is written to a temporary file that is renamed over
+ * the target, so a bundle being replaced is never seen half written.
+ * <p>
+ * A writer is not thread safe.
+ */
+public final class IffBundleWriter {
+    private static final byte[] PADDING = new byte[IffBundle.ALIGNMENT];
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+
+    /**
+     * @return The number of files added.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Add a file held in memory.
+     *
+     * @param name The name of the file in the bundle, which is normalized.
+     * @throws IllegalArgumentException If a file with the name was already added, or the name is not ISO-8859-1.
+     */
+    public IffBundleWriter add(final String name, final byte[] bytes) {
+        return add(name, ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Add the remaining bytes of a buffer as a file. The buffer must not be changed until the bundle is written.
+     *
+     * @param name The name of the file in the bundle, which is normalized.
+     * @throws IllegalArgumentException If a file with the name was already added, or the name is not ISO-8859-1.
+     */
+    public IffBundleWriter add(final String name, final ByteBuffer data) {
+        Preconditions.checkNotNull(data);
+
+        entries.add(new Entry(addName(name), data.duplicate(), null));
+        return this;
+    }
+
+    /**
+     * Add a file on disk, which is read when the bundle is written.
+     *
+     * @param name The name of the file in the bundle, which is normalized.
+     * @throws IllegalArgumentException If a file with the name was already added, or the name is not ISO-8859-1.
+     */
+    public IffBundleWriter add(final String name, final Path file) {
+        Preconditions.checkNotNull(file);
+
+        entries.add(new Entry(addName(name), null, file));
+        return this;
+    }
+
+    /**
+     * Add every file under a directory, named by its path relative to the directory.
+     *
+     * @throws IllegalArgumentException If a file with one of the names was already added, or a name is not ISO-8859-1.
+     */
+    public IffBundleWriter addDirectory(final Path directory) throws IOException {
+        final List<Path> files;
+
+        try (final Stream<Path> stream = Files.walk(directory)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        for (final Path file : files)
+            add(directory.relativize(file).toString(), file);
+
+        return this;
+    }
+
+    /**
+     * Write the bundle, replacing the file if it exists.
+     */
+    public void write(final Path path) throws IOException {
+        write(path, false);
+    }
+
+    /**
+     * Write the bundle, replacing the file if it exists.
+     *
+     * @param sync True to force the bundle to the storage device before the file is replaced.
+     * @throws IOException If a file could not be read, or the bundle would be larger than 2GB.
+     */
+    public void write(final Path path, final boolean sync) throws IOException {
+        final IffMetrics metrics = Iff.getDefaultMetrics();
+        final long start = metrics != IffMetrics.NONE ? System.nanoTime() : 0;
+
+        final List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong((Entry entry) -> entry.hash).thenComparing(entry -> entry.name));
+
+        final byte[][] nameBytes = new byte[sorted.size()][];
+        int namesLength = 0;
+
+        for (int index = 0; index < sorted.size(); ++index) {
+            nameBytes[index] = sorted.get(index).name.getBytes(StandardCharsets.ISO_8859_1);
+            namesLength += nameBytes[index].length;
+        }
+
+        //Lay out the payloads after the names, each on an 8 byte boundary.
+        final int[] offsets = new int[sorted.size()];
+        final int[] lengths = new int[sorted.size()];
+        long offset = align((long) IffBundle.HEADER_SIZE + (long) sorted.size() * IffBundle.ENTRY_SIZE + namesLength);
+
+        for (int index = 0; index < sorted.size(); ++index) {
+            final Entry entry = sorted.get(index);
+            final long length = entry.data != null ? entry.data.remaining() : Files.size(entry.file);
+
+            offsets[index] = (int) offset;
+            lengths[index] = (int) length;
+            offset = align(offset + length);
+
+            if (offset > Integer.MAX_VALUE)
+                throw new IOException(String.format("Bundle [%s] would be larger than 2GB.", path));
+        }
+
+        final ByteBuffer header = ByteBuffer.allocate(IffBundle.HEADER_SIZE + sorted.size() * IffBundle.ENTRY_SIZE + namesLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        header.putInt(Iff.endianSwap32(IffBundle.TAG_BUNDLE));
+        header.putInt(IffBundle.VERSION);
+        header.putInt(sorted.size());
+        header.putInt(namesLength);
+
+        int nameOffset = 0;
+
+        for (int index = 0; index < sorted.size(); ++index) {
+            header.putLong(sorted.get(index).hash);
+            header.putInt(offsets[index]);
+            header.putInt(lengths[index]);
+            header.putInt(nameOffset);
+            header.putInt(nameBytes[index].length);
+
+            nameOffset += nameBytes[index].length;
+        }
+
+        for (final byte[] bytes : nameBytes)
+            header.put(bytes);
+
+        header.flip();
+
+        final long bundleLength = offset;
+
+        IffFiles.write(path, channel -> {
+            IffFiles.writeFully(channel, header);
+
+            for (int index = 0; index < sorted.size(); ++index) {
+                pad(channel, offsets[index]);
+                sorted.get(index).writeTo(channel, lengths[index]);
+            }
+
+            pad(channel, bundleLength);
+        }, sync);
+
+        if (metrics != IffMetrics.NONE)
+            metrics.fileWritten(path.toString(), (int) bundleLength, System.nanoTime() - start);
+    }
+
+    private String addName(final String name) {
+        final String normalized = TreArchive.normalize(name);
+
+        //Names are stored as ISO-8859-1, but hashed and compared as chars, so any other character could never be found.
+        for (int index = 0; index < normalized.length(); ++index) {
+            if (normalized.charAt(index) > 0xFF)
+                throw new IllegalArgumentException(String.format("File name [%s] is not ISO-8859-1.", normalized));
+        }
+
+        if (!names.add(normalized))
+            throw new IllegalArgumentException(String.format("File [%s] already added to the bundle.", normalized));
+
+        return normalized;
+    }
+
+    private static long align(final long offset) {
+        return (offset + IffBundle.ALIGNMENT - 1) & -IffBundle.ALIGNMENT;
+    }
+
+    /**
+     * Write zeros up to an offset of the channel.
+     */
+    private static void pad(final FileChannel channel, final long offset) throws IOException {
+        final int count = (int) (offset - channel.position());
+
+        if (count > 0)
+            IffFiles.writeFully(channel, ByteBuffer.wrap(PADDING, 0, count));
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final long hash;
+        private final ByteBuffer data;
+        private final Path file;
+
+        private Entry(final String name, final ByteBuffer data, final Path file) {
+            this.name = name;
+            this.hash = IffFileSystem.hash(name);
+            this.data = data;
+            this.file = file;
+        }
+
+        private void writeTo(final FileChannel channel, final int length) throws IOException {
+            if (data != null) {
+                IffFiles.writeFully(channel, data.duplicate());
+                return;
+            }
+
+            try (final FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                long position = 0;
+
+                while (position < length) {
+                    final long count = source.transferTo(position, length - position, channel);
+
+                    if (count <= 0)
+                        throw new IOException(String.format("File [%s] changed while it was bundled.", file));
+
+                    position += count;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A cache of parsed Iff files by name, bounded by the total number of bytes it holds.
+ * <p>
+ * The cache holds an immutable {@link IffImage} per file, and hands out a new cursor over it for every request, so a
+ * cached file can be read by any number of threads at once. When the budget is exceeded, the least recently used files
+ * are evicted. Concurrent requests for a file that is not cached wait for a single load, rather than each loading it.
+ * <p>
+ * The cache has a single segment. Guava divides the maximum weight between its segments, so with more than one, a
+ * file weighing more than a share of the budget would be evicted as soon as it was loaded. Loads happen outside the
+ * segment lock, so one segment does not serialize them.
+ * <p>
+ * Hit, miss, load and eviction counts are recorded and available through {@link #getStats()}.
+ */
+public final class IffCache {
+    /**
+     * Approximate cost of an entry beyond its bytes, so that many small files still count against the budget.
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final LoadingCache<String, IffImage> images;
+
+    /**
+     * @param maximumBytes The number of bytes of Iff data to hold before evicting files.
+     * @param loader       Loads files that are not cached.
+     */
+    public IffCache(final long maximumBytes, final Loader loader) {
+        Preconditions.checkArgument(maximumBytes >= 0, "maximum bytes must not be negative");
+        Preconditions.checkNotNull(loader);
+
+        this.images = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(maximumBytes)
+                .weigher((final String name, final IffImage image) -> image.getLength() + ENTRY_OVERHEAD)
+                .recordStats()
+                .build(new CacheLoader<String, IffImage>() {
+                    @Override
+                    public IffImage load(final String name) throws IOException {
+                        return loader.load(name);
+                    }
+                });
+    }
+
+    /**
+     * Create a cache of the files of a file system.
+     */
+    public static IffCache of(final IffFileSystem fileSystem, final long maximumBytes) {
+        Preconditions.checkNotNull(fileSystem);
+
+        return new IffCache(maximumBytes, name -> {
+            return IffImage.of(fileSystem.open(name));
+        });
+    }
+
+    /**
+     * Get a new cursor over a file, loading it if it is not cached.
+     *
+     * @param name The name of the file.
+     * @return An Iff positioned at the start of the file.
+     * @throws IOException If the file was not cached and could not be loaded.
+     */
+    public Iff get(final String name) throws IOException {
+        return getImage(name).newCursor();
+    }
+
+    /**
+     * Get the image of a file, loading it if it is not cached.
+     *
+     * @param name The name of the file.
+     * @return The image of the file.
+     * @throws IOException If the file was not cached and could not be loaded.
+     */
+    public IffImage getImage(final String name) throws IOException {
+        Preconditions.checkNotNull(name);
+
+        try {
+            return images.get(name);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+
+            throw new IOException(e.getCause());
+        } catch (final UncheckedExecutionException | ExecutionError e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+
+            throw e;
+        }
+    }
+
+    /**
+     * @return The image of a file if it is cached, without loading it.
+     */
+    public IffImage getIfPresent(final String name) {
+        return images.getIfPresent(name);
+    }
+
+    public void invalidate(final String name) {
+        images.invalidate(name);
+    }
+
+    public void invalidateAll() {
+        images.invalidateAll();
+    }
+
+    /**
+     * @return The number of files cached.
+     */
+    public long size() {
+        return images.size();
+    }
+
+    /**
+     * @return A snapshot of the hit, miss, load and eviction counts since the cache was created.
+     */
+    public CacheStats getStats() {
+        return images.stats();
+    }
+
+    /**
+     * Loads a file that is not cached.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        IffImage load(final String name) throws IOException;
+    }
+}
@@ -0,0 +1,30 @@
+package bacta.iff;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field of an {@link IffForm} class to be read and written by its generated codec.
+ * <p>
+ * Fields are stored in ascending order, and consecutive fields with the same chunk name share one chunk. Supported
+ * types are the primitives {@code boolean}, {@code byte}, {@code short}, {@code int}, {@code long} and {@code float},
+ * {@link String}, and arrays of {@code byte}, {@code short}, {@code int}, {@code long} and {@code float}. An array is
+ * stored as an int element count followed by its elements, which are read in bulk.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface IffChunk {
+    /**
+     * @return The four character name of the chunk holding the field.
+     */
+    String value();
+
+    /**
+     * @return The position of the field relative to the other fields of the class.
+     */
+    int order();
+}
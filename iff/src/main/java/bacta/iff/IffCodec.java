@@ -0,0 +1,55 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.util.function.Supplier;
+
+/**
+ * Reads and writes one version of a form, for dispatch through an {@link IffCodecRegistry}.
+ * <p>
+ * A codec is called with the Iff inside the outer form, positioned at the version form, which it enters and exits
+ * itself. A {@code DERV} form before the version form has already been read by the registry, and the name of the base
+ * template it holds is passed to {@link #read(Iff, String)}. Any blocks after the version form, such as the form of
+ * the parent class, may be read by the codec before it returns, for example by passing the Iff back to the registry.
+ */
+public interface IffCodec<T> {
+    T read(final Iff iff);
+
+    /**
+     * Read the version form of a template which may derive from a base template. Codecs which need the name of the base
+     * template override this; by default it is ignored.
+     *
+     * @param baseTemplate The name held by the {@code DERV} form before the version form, or null if there is none.
+     */
+    default T read(final Iff iff, final String baseTemplate) {
+        return read(iff);
+    }
+
+    /**
+     * Write the content of the outer form after any {@code DERV} form, starting with the version form.
+     */
+    void write(final Iff iff, final T value);
+
+    /**
+     * Create a codec for a class which reads and writes itself.
+     *
+     * @param factory Creates an empty instance to read into.
+     */
+    static <T extends IffReadable & IffWritable> IffCodec<T> of(final Supplier<T> factory) {
+        Preconditions.checkNotNull(factory);
+
+        return new IffCodec<T>() {
+            @Override
+            public T read(final Iff iff) {
+                final T value = factory.get();
+                value.readFromIff(iff);
+                return value;
+            }
+
+            @Override
+            public void write(final Iff iff, final T value) {
+                value.writeToIff(iff);
+            }
+        };
+    }
+}
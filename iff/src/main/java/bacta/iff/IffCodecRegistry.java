@@ -0,0 +1,212 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Dispatches the reading and writing of forms to codecs by form tag and version tag.
+ * <p>
+ * Forms are expected in the usual versioned layout, where the outer form is named for the type, and contains an
+ * optional {@code DERV} form naming the template it derives from, followed by a form named for the version. The codec
+ * for a pair of tags is found with a single lookup in an open addressing table keyed on both tags, built once by a
+ * {@link Builder}.
+ * <p>
+ * A registry is immutable once built and may be shared between threads.
+ *
+ * @param <T> The common type of the values read by the codecs.
+ */
+public final class IffCodecRegistry<T> {
+    public static final int TAG_DERV = Iff.createChunkId("DERV");
+    public static final int TAG_XXXX = Iff.createChunkId("XXXX");
+
+    private static final long EMPTY = 0;
+
+    private final long[] keys;
+    private final IffCodec<?>[] codecs;
+    private final int mask;
+    private final int size;
+
+    private IffCodecRegistry(final Builder<T> builder) {
+        int tableSize = 2;
+
+        while (tableSize < builder.size * 2)
+            tableSize <<= 1;
+
+        this.keys = new long[tableSize];
+        this.codecs = new IffCodec<?>[tableSize];
+        this.mask = tableSize - 1;
+        this.size = builder.size;
+
+        for (int index = 0; index < builder.size; ++index) {
+            final int slot = findSlot(keys, mask, builder.keys[index]);
+            keys[slot] = builder.keys[index];
+            codecs[slot] = builder.codecs[index];
+        }
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return The number of registered codecs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The codec for a form and version, or null if none is registered.
+     */
+    @SuppressWarnings("unchecked")
+    public IffCodec<? extends T> getCodec(final int formTag, final int versionTag) {
+        final long key = key(formTag, versionTag);
+        return (IffCodec<? extends T>) codecs[findSlot(keys, mask, key)];
+    }
+
+    /**
+     * Read the form at the current position with the codec registered for its form and version tags.
+     * <p>
+     * A {@code DERV} form at the start of the form is read here, and the name of the base template it holds is passed
+     * to {@link IffCodec#read(Iff, String)}. The Iff is left after the form.
+     *
+     * @param iff The Iff, positioned at the outer form and not inside a chunk.
+     * @return The value read by the codec.
+     * @throws IllegalArgumentException If the current block is not a form, or no codec is registered for it.
+     */
+    public T read(final Iff iff) {
+        if (iff.isAtEndOfForm() || !iff.isCurrentForm())
+            throw new IllegalArgumentException("Expected a form to read.");
+
+        final int formTag = iff.getCurrentName();
+        iff.enterForm();
+
+        String baseTemplate = null;
+
+        if (!iff.isAtEndOfForm() && iff.isCurrentForm() && iff.getCurrentName() == TAG_DERV) {
+            iff.enterForm(TAG_DERV);
+            iff.enterChunk();
+            baseTemplate = iff.readString();
+            iff.exitChunk();
+            iff.exitForm(TAG_DERV);
+        }
+
+        final int versionTag = iff.isAtEndOfForm() ? 0 : iff.getCurrentName();
+        final IffCodec<? extends T> codec = getCodec(formTag, versionTag);
+
+        if (codec == null) {
+            throw new IllegalArgumentException(String.format("No codec for form [%s] version [%s].",
+                    Iff.getChunkName(formTag),
+                    Iff.getChunkName(versionTag)));
+        }
+
+        final T value = codec.read(iff, baseTemplate);
+        iff.exitForm(formTag);
+
+        return value;
+    }
+
+    /**
+     * Write a value as a new form at the current position, with the codec registered for the form and version tags.
+     *
+     * @throws IllegalArgumentException If no codec is registered for the tags.
+     * @throws ClassCastException       If the codec is for a different type of value.
+     */
+    public void write(final Iff iff, final int formTag, final int versionTag, final T value) {
+        write(iff, formTag, versionTag, null, value);
+    }
+
+    /**
+     * Write a value as a new form at the current position, with the codec registered for the form and version tags,
+     * preceded by a {@code DERV} form naming its base template.
+     *
+     * @param baseTemplate The name of the base template, or null to write no {@code DERV} form.
+     * @throws IllegalArgumentException If no codec is registered for the tags.
+     * @throws ClassCastException       If the codec is for a different type of value.
+     */
+    @SuppressWarnings("unchecked")
+    public void write(final Iff iff, final int formTag, final int versionTag, final String baseTemplate, final T value) {
+        final IffCodec<T> codec = (IffCodec<T>) getCodec(formTag, versionTag);
+
+        if (codec == null) {
+            throw new IllegalArgumentException(String.format("No codec for form [%s] version [%s].",
+                    Iff.getChunkName(formTag),
+                    Iff.getChunkName(versionTag)));
+        }
+
+        iff.insertForm(formTag);
+
+        if (baseTemplate != null) {
+            iff.insertForm(TAG_DERV);
+            iff.insertChunk(TAG_XXXX);
+            iff.insertChunkString(baseTemplate);
+            iff.exitChunk(TAG_XXXX);
+            iff.exitForm(TAG_DERV);
+        }
+
+        codec.write(iff, value);
+        iff.exitForm(formTag);
+    }
+
+    private static long key(final int formTag, final int versionTag) {
+        return ((long) formTag << 32) | (versionTag & 0xFFFFFFFFL);
+    }
+
+    private static int findSlot(final long[] keys, final int mask, final long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+
+        while (keys[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    /**
+     * Collects the codecs of a registry.
+     */
+    public static final class Builder<T> {
+        private long[] keys = new long[16];
+        private IffCodec<?>[] codecs = new IffCodec<?>[16];
+        private int size;
+
+        private Builder() {
+        }
+
+        /**
+         * Register the codec for a version of a form.
+         *
+         * @throws IllegalArgumentException If a codec is already registered for the tags.
+         */
+        public Builder<T> register(final int formTag, final int versionTag, final IffCodec<? extends T> codec) {
+            Preconditions.checkNotNull(codec);
+            Preconditions.checkArgument(formTag != 0, "form tag must not be 0");
+
+            final long key = key(formTag, versionTag);
+
+            for (int index = 0; index < size; ++index) {
+                if (keys[index] == key) {
+                    throw new IllegalArgumentException(String.format("Codec already registered for form [%s] version [%s].",
+                            Iff.getChunkName(formTag),
+                            Iff.getChunkName(versionTag)));
+                }
+            }
+
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                codecs = Arrays.copyOf(codecs, size * 2);
+            }
+
+            keys[size] = key;
+            codecs[size] = codec;
+            ++size;
+
+            return this;
+        }
+
+        public IffCodecRegistry<T> build() {
+            return new IffCodecRegistry<>(this);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Resolves Iff files by name across an ordered stack of TRE archives and loose directories, where files in later
+ * sources replace files of the same name in earlier ones.
+ * <p>
+ * Every source is listed once, when the file system is built, into a single table from name to the source and record
+ * holding the winning copy of the file. The table is an open addressing map keyed on a 64 bit hash of the name, and a
+ * match is confirmed by comparing the name itself, so resolving a name costs one lookup no matter how many sources
+ * there are. Directories are not watched; files added to them after the file system was built are not seen.
+ * <p>
+ * Names are matched without regard to case, and with either kind of slash. A file system is immutable once built and
+ * may be shared between threads.
+ */
+public final class IffFileSystem {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final TreArchive[] archives;
+    private final String[] names;
+    private final TreArchive[] entryArchives;
+    private final int[] entryRecords;
+    private final Path[] entryPaths;
+    private final long[] keys;
+    private final int[] slots;
+    private final int mask;
+    private final int size;
+
+    /**
+     * @param sources Each source, from lowest to highest priority, with its directory listed.
+     */
+    private IffFileSystem(final List<TreArchive> archives, final List<Source> sources) {
+        this.archives = archives.toArray(new TreArchive[0]);
+
+        int capacity = 0;
+
+        for (final Source source : sources)
+            capacity += source.size();
+
+        int tableSize = 2;
+
+        while (tableSize < capacity * 2)
+            tableSize <<= 1;
+
+        this.names = new String[capacity];
+        this.entryArchives = new TreArchive[capacity];
+        this.entryRecords = new int[capacity];
+        this.entryPaths = new Path[capacity];
+        this.keys = new long[tableSize];
+        this.slots = new int[tableSize];
+        this.mask = tableSize - 1;
+
+        int size = 0;
+
+        for (final Source source : sources) {
+            final TreArchive archive = source.archive;
+
+            if (archive != null) {
+                for (int record = 0; record < archive.size(); ++record) {
+                    if (put(size, archive.getName(record), archive, record, null))
+                        ++size;
+                }
+            } else {
+                for (final Loose file : source.files) {
+                    if (put(size, file.name, null, -1, file.path))
+                        ++size;
+                }
+            }
+        }
+
+        this.size = size;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The number of distinct files visible through the file system.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(final String name) {
+        return find(TreArchive.normalize(name)) != -1;
+    }
+
+    /**
+     * Open the winning copy of a file as an Iff.
+     *
+     * @param name The name of the file, relative to the root of each source.
+     * @return An Iff positioned at the start of the file.
+     * @throws NoSuchFileException If no source contains the file.
+     * @throws IOException         If the file could not be read.
+     */
+    public Iff open(final String name) throws IOException {
+        final String normalized = TreArchive.normalize(name);
+        final int entry = find(normalized);
+
+        if (entry == -1)
+            throw new NoSuchFileException(name);
+
+        if (entryArchives[entry] != null)
+            return entryArchives[entry].open(entryRecords[entry]);
+
+        final IffMetrics metrics = Iff.getDefaultMetrics();
+        final long start = metrics != IffMetrics.NONE ? System.nanoTime() : 0;
+        final byte[] bytes = Files.readAllBytes(entryPaths[entry]);
+
+        if (metrics != IffMetrics.NONE)
+            metrics.fileLoaded(normalized, bytes.length, System.nanoTime() - start);
+
+        return new Iff(normalized, bytes);
+    }
+
+    /**
+     * @return The archives of the file system, in the order they were added.
+     */
+    public List<TreArchive> getArchives() {
+        return Arrays.asList(archives.clone());
+    }
+
+    /**
+     * Point a name at a file, replacing the file it pointed at if any.
+     *
+     * @param size The number of names in the table.
+     * @return True if the name was added to the table, rather than replaced.
+     */
+    private boolean put(final int size, final String name, final TreArchive archive, final int record, final Path path) {
+        final long hash = hash(name);
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        int entry;
+
+        while ((entry = slots[slot] - 1) != -1) {
+            if (keys[slot] == hash && names[entry].equals(name))
+                break;
+
+            slot = (slot + 1) & mask;
+        }
+
+        final boolean added = entry == -1;
+
+        if (added) {
+            entry = size;
+            keys[slot] = hash;
+            slots[slot] = entry + 1;
+            names[entry] = name;
+        }
+
+        entryArchives[entry] = archive;
+        entryRecords[entry] = record;
+        entryPaths[entry] = path;
+
+        return added;
+    }
+
+    private int find(final String name) {
+        final long hash = hash(name);
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        int entry;
+
+        while ((entry = slots[slot] - 1) != -1) {
+            if (keys[slot] == hash && names[entry].equals(name))
+                return entry;
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * 64 bit FNV-1a hash of a normalized name, which is wide enough that different names practically never share a
+     * hash, so names are only compared on a likely match.
+     */
+    static long hash(final String name) {
+        long hash = FNV_OFFSET_BASIS;
+
+        for (int index = 0; index < name.length(); ++index) {
+            hash ^= name.charAt(index);
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    private static final class Loose {
+        private final String name;
+        private final Path path;
+
+        private Loose(final String name, final Path path) {
+            this.name = name;
+            this.path = path;
+        }
+    }
+
+    /**
+     * A source of files; either an archive, or a directory of loose files.
+     */
+    private static final class Source {
+        private final TreArchive archive;
+        private final Path directory;
+        private final List<Loose> files;
+
+        private Source(final TreArchive archive, final Path directory, final List<Loose> files) {
+            this.archive = archive;
+            this.directory = directory;
+            this.files = files;
+        }
+
+        private static Source archive(final TreArchive archive) {
+            return new Source(archive, null, Collections.emptyList());
+        }
+
+        private static Source directory(final Path directory) {
+            return new Source(null, directory, Collections.emptyList());
+        }
+
+        /**
+         * @return The number of files in the source. A directory has none until it is listed.
+         */
+        private int size() {
+            return archive != null ? archive.size() : files.size();
+        }
+
+        /**
+         * @return This source, with the files of a directory listed.
+         */
+        private Source list() throws IOException {
+            if (archive != null)
+                return this;
+
+            final List<Loose> files = new ArrayList<>();
+
+            try (final Stream<Path> paths = Files.walk(directory)) {
+                paths.filter(Files::isRegularFile).forEach(path ->
+                        files.add(new Loose(TreArchive.normalize(directory.relativize(path).toString()), path)));
+            }
+
+            return new Source(null, directory, files);
+        }
+    }
+
+    /**
+     * Collects the sources of a file system, from lowest to highest priority.
+     */
+    public static final class Builder {
+        private final List<Source> sources = new ArrayList<>();
+        private final List<TreArchive> archives = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Add an archive, whose files replace those of the sources added before it.
+         */
+        public Builder addArchive(final TreArchive archive) {
+            Preconditions.checkNotNull(archive);
+
+            sources.add(Source.archive(archive));
+            archives.add(archive);
+            return this;
+        }
+
+        /**
+         * Open and add an archive, whose files replace those of the sources added before it.
+         */
+        public Builder addArchive(final Path path) throws IOException {
+            return addArchive(TreArchive.open(path));
+        }
+
+        /**
+         * Add a directory of loose files, which replace those of the sources added before it. The directory is listed
+         * when the file system is built.
+         */
+        public Builder addDirectory(final Path directory) {
+            Preconditions.checkNotNull(directory);
+
+            sources.add(Source.directory(directory));
+            return this;
+        }
+
+        public IffFileSystem build() throws IOException {
+            //List each directory once up front, so the table can be sized for every source.
+            final List<Source> listed = new ArrayList<>(sources.size());
+
+            for (final Source source : sources)
+                listed.add(source.list());
+
+            return new IffFileSystem(archives, listed);
+        }
+    }
+}
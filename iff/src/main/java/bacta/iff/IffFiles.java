@@ -0,0 +1,159 @@
+package bacta.iff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes files atomically, by writing a temporary file beside the target and renaming it over the target.
+ * <p>
+ * Readers of the target see either the old file or the whole new file, never a partial write. The temporary file is
+ * created with the default permissions of new files, or with the permissions of the target if it already exists, so
+ * the written file has the same mode a plain write would have given it.
+ */
+final class IffFiles {
+    private IffFiles() {
+    }
+
+    /**
+     * Write the remaining bytes of a buffer to a file, replacing it if it exists.
+     *
+     * @param sync True to force the bytes to the storage device before the file is replaced.
+     */
+    static void write(final Path path, final ByteBuffer data, final boolean sync) throws IOException {
+        write(path, channel -> writeFully(channel, data.duplicate()), sync);
+    }
+
+    /**
+     * Write a file with content written directly to its channel, replacing it if it exists.
+     *
+     * @param sync True to force the bytes to the storage device before the file is replaced.
+     */
+    static void write(final Path path, final Content content, final boolean sync) throws IOException {
+        final Path temp = writeTemp(path, content, sync);
+
+        try {
+            move(temp, path, sync);
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Write the remaining bytes of a buffer to a new temporary file in the directory of a target file.
+     *
+     * @return The temporary file, to be moved over the target with {@link #move(Path, Path, boolean)}.
+     */
+    static Path writeTemp(final Path path, final ByteBuffer data, final boolean sync) throws IOException {
+        return writeTemp(path, channel -> writeFully(channel, data.duplicate()), sync);
+    }
+
+    private static Path writeTemp(final Path path, final Content content, final boolean sync) throws IOException {
+        final Path directory = path.toAbsolutePath().getParent();
+
+        while (true) {
+            final Path temp = directory.resolve(String.format(".%s.%016x.tmp",
+                    path.getFileName(),
+                    ThreadLocalRandom.current().nextLong()));
+
+            //Opened rather than created with Files.createTempFile, which would restrict the file to its owner.
+            final FileChannel channel;
+
+            try {
+                channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (final FileAlreadyExistsException e) {
+                continue;
+            }
+
+            try (final FileChannel ignored = channel) {
+                copyPermissions(path, temp);
+                content.writeTo(channel);
+
+                if (sync)
+                    channel.force(true);
+            } catch (final IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+
+            return temp;
+        }
+    }
+
+    /**
+     * Give a temporary file the permissions of the file it will replace, if that file exists and the file system has
+     * posix permissions.
+     */
+    private static void copyPermissions(final Path path, final Path temp) throws IOException {
+        final PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+
+        if (view == null)
+            return;
+
+        final Set<PosixFilePermission> permissions;
+
+        try {
+            permissions = view.readAttributes().permissions();
+        } catch (final NoSuchFileException e) {
+            return;
+        }
+
+        Files.setPosixFilePermissions(temp, permissions);
+    }
+
+    static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Rename a temporary file over its target, atomically where the file system supports it.
+     *
+     * @param sync True to force the rename to the storage device, by forcing the directory holding the target.
+     */
+    static void move(final Path temp, final Path path, final boolean sync) throws IOException {
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (sync)
+            syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    private static void syncDirectory(final Path directory) throws IOException {
+        final FileChannel channel;
+
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (final AccessDeniedException | UnsupportedOperationException e) {
+            //Some platforms, such as Windows, cannot open a directory, and make renames durable without it.
+            return;
+        }
+
+        try (final FileChannel ignored = channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Writes the content of a file to its channel, from the start of the channel.
+     */
+    interface Content {
+        void writeTo(final FileChannel channel) throws IOException;
+    }
+}
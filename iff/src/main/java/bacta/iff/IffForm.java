@@ -0,0 +1,29 @@
+package bacta.iff;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which the {@code iff-processor} module generates an {@link IffCodec} at compile time.
+ * <p>
+ * The generated codec is named after the class with a {@code Codec} suffix and placed in the same package. It reads
+ * and writes the version form, containing a chunk for each distinct {@link IffChunk} name of the class's fields. The
+ * class must have a constructor without arguments, and its annotated fields must not be private or final.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface IffForm {
+    /**
+     * @return The four character name of the outer form, such as {@code SHOT}.
+     */
+    String value();
+
+    /**
+     * @return The four character name of the version form, such as {@code 0007}.
+     */
+    String version();
+}
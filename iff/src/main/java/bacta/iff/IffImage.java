@@ -0,0 +1,141 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The immutable contents of an Iff file, shared between any number of threads.
+ * <p>
+ * An image holds the bytes of a file and, optionally, an {@link IffIndex} over them. It has no cursor state of its
+ * own; to read it, each thread creates an {@link Iff} with {@link #newCursor()}. A cursor shares the image's bytes and
+ * index, so creating one allocates only the cursor and its navigation stack, never a copy of the data.
+ * <p>
+ * Cursors see the image through a read only view. Writing through a cursor copies the data into that cursor first,
+ * and leaves the image and every other cursor untouched. Strings are still decoded straight from the array behind the
+ * view when there is one.
+ */
+public final class IffImage {
+    private final String fileName;
+    private final ByteBuffer data;
+    private final ByteBuffer arrayData;
+    private final IffIndex index;
+
+    private IffImage(final String fileName, final ByteBuffer data, final ByteBuffer arrayData, final IffIndex index) {
+        this.fileName = fileName;
+        this.data = data;
+        this.arrayData = arrayData;
+        this.index = index;
+    }
+
+    /**
+     * Create an image over an array without copying it. The array must not be modified afterwards.
+     */
+    public static IffImage of(final String fileName, final byte[] bytes) {
+        Preconditions.checkNotNull(bytes);
+        return of(fileName, ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Create an image over the remaining bytes of a buffer without copying them. The buffer's content must not be
+     * modified afterwards.
+     */
+    public static IffImage of(final String fileName, final ByteBuffer buffer) {
+        Preconditions.checkNotNull(buffer);
+
+        final ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer view = slice.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+
+        return new IffImage(fileName, view, slice.hasArray() ? slice : null, null);
+    }
+
+    /**
+     * Create an image over the used bytes of an Iff without copying them. The Iff must not be modified afterwards.
+     */
+    static IffImage of(final Iff iff) {
+        final ByteBuffer arrayData = iff.getSharedArrayData();
+        return new IffImage(iff.getFileName(), iff.getSharedData(), arrayData, null);
+    }
+
+    /**
+     * Create an image of a file by memory mapping it read only.
+     */
+    public static IffImage open(final Path path) throws IOException {
+        final IffMetrics metrics = Iff.getDefaultMetrics();
+        final long start = metrics != IffMetrics.NONE ? System.nanoTime() : 0;
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final IffImage image = of(path.toString(), buffer);
+
+            if (metrics != IffMetrics.NONE)
+                metrics.fileLoaded(image.fileName, image.getLength(), System.nanoTime() - start);
+
+            return image;
+        }
+    }
+
+    /**
+     * Create an image sharing these bytes, with an index built over them. Cursors of the returned image use the index.
+     *
+     * @return This image if it is already indexed, otherwise a new indexed image.
+     */
+    public IffImage withIndex() {
+        if (index != null)
+            return this;
+
+        return new IffImage(fileName, data, arrayData, IffIndex.build(data, data.remaining()));
+    }
+
+    /**
+     * Create a new cursor positioned at the start of this image.
+     * <p>
+     * A cursor is not thread safe and belongs to a single thread at a time, but it is cheap enough to create per task.
+     */
+    public Iff newCursor() {
+        final Iff iff = new Iff(fileName, data.duplicate(), arrayData);
+
+        if (index != null)
+            iff.setIndex(index);
+
+        return iff;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return The index shared by cursors of this image, or null if it has none.
+     */
+    public IffIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The number of bytes in the image.
+     */
+    public int getLength() {
+        return data.remaining();
+    }
+
+    /**
+     * @return A view of the image's bytes backed by an array, which is never written to, or null if there is none.
+     */
+    ByteBuffer getArrayData() {
+        return arrayData;
+    }
+
+    /**
+     * @return A read only little endian view of the image's bytes.
+     */
+    public ByteBuffer getData() {
+        return data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
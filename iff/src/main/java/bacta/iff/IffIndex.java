@@ -0,0 +1,403 @@
+package bacta.iff;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A table of contents for the blocks of an Iff, built in a single linear scan of the data.
+ * <p>
+ * Every form and chunk becomes a node, numbered in file order, and its properties are stored in flat primitive arrays.
+ * Node {@link #ROOT} is a virtual node representing the top level of the file. The children of each node are stored
+ * contiguously so that child counts and jumping to the Nth child are constant time, and children are also grouped by
+ * name so that seeking to a named block does not need to walk its siblings.
+ * <p>
+ * An index is immutable once built and may be shared between threads and between Iff instances over the same data.
+ */
+public final class IffIndex {
+    public static final int ROOT = 0;
+    public static final int NONE = -1;
+
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int GROUP_HEADER_SIZE = 12;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int size;
+    private final int[] tags;
+    private final int[] names;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] parents;
+    private final int[] nextSiblings;
+    private final int[] ordinals;
+    private final int[] childCounts;
+    private final int[] firstChildren;
+    private final int[] children;
+
+    private final long[] nameKeys;
+    private final int[] nameSlots;
+    private final int[] nameStarts;
+    private final int[] nameCounts;
+    private final int[] namedChildren;
+
+    /**
+     * Build an index over the Iff data held in a buffer.
+     *
+     * @param data   The buffer holding the Iff data. Offsets are absolute indices into this buffer.
+     * @param length The number of bytes of Iff data, starting at offset 0.
+     * @return The index.
+     * @throws IllegalArgumentException If a block header is truncated or a block overruns its parent.
+     */
+    public static IffIndex build(final ByteBuffer data, final int length) {
+        final Builder builder = new Builder(data);
+        builder.scan(length);
+        return new IffIndex(builder);
+    }
+
+    private IffIndex(final Builder builder) {
+        this.size = builder.size;
+        this.tags = Arrays.copyOf(builder.tags, size);
+        this.names = Arrays.copyOf(builder.names, size);
+        this.offsets = Arrays.copyOf(builder.offsets, size);
+        this.lengths = Arrays.copyOf(builder.lengths, size);
+        this.parents = Arrays.copyOf(builder.parents, size);
+        this.nextSiblings = Arrays.copyOf(builder.nextSiblings, size);
+        this.ordinals = Arrays.copyOf(builder.ordinals, size);
+        this.childCounts = Arrays.copyOf(builder.childCounts, size);
+        this.firstChildren = new int[size];
+        this.children = new int[size];
+
+        //Lay out the children of each node contiguously, in file order.
+        for (int node = 0, slot = 0; node < size; ++node) {
+            firstChildren[node] = slot;
+            slot += childCounts[node];
+        }
+
+        for (int node = 1; node < size; ++node)
+            children[firstChildren[parents[node]] + ordinals[node]] = node;
+
+        //Group the children of each node by name, so that a seek can jump straight to the matching siblings.
+        int capacity = 16;
+
+        while (capacity < size * 2)
+            capacity <<= 1;
+
+        this.nameKeys = new long[capacity];
+        this.nameSlots = new int[capacity];
+        Arrays.fill(nameSlots, NONE);
+
+        final int[] nodeEntries = new int[size];
+        final int[] entryCounts = new int[size];
+        int entries = 0;
+
+        for (int node = 1; node < size; ++node) {
+            final long key = nameKey(parents[node], names[node]);
+            int slot = findSlot(key);
+
+            if (nameSlots[slot] == NONE) {
+                nameKeys[slot] = key;
+                nameSlots[slot] = entries++;
+            }
+
+            nodeEntries[node] = nameSlots[slot];
+            ++entryCounts[nameSlots[slot]];
+        }
+
+        this.nameStarts = new int[entries];
+        this.nameCounts = new int[entries];
+        this.namedChildren = new int[Math.max(size - 1, 0)];
+
+        for (int entry = 0, start = 0; entry < entries; ++entry) {
+            nameStarts[entry] = start;
+            start += entryCounts[entry];
+        }
+
+        for (int node = 1; node < size; ++node) {
+            final int entry = nodeEntries[node];
+            namedChildren[nameStarts[entry] + nameCounts[entry]++] = node;
+        }
+    }
+
+    /**
+     * @return The number of nodes in the index, including the root.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The first tag of the block header; {@link Iff#TAG_FORM} for forms, or the chunk id for chunks.
+     */
+    public int getTag(final int node) {
+        return tags[node];
+    }
+
+    /**
+     * @return The name of the block; the form name for forms, or the chunk id for chunks.
+     */
+    public int getName(final int node) {
+        return names[node];
+    }
+
+    /**
+     * @return The absolute offset of the block header.
+     */
+    public int getOffset(final int node) {
+        return offsets[node];
+    }
+
+    /**
+     * @return The length stored in the block header. For forms this includes the 4 byte form name.
+     */
+    public int getLength(final int node) {
+        return lengths[node];
+    }
+
+    /**
+     * @return The absolute offset of the first byte after the block header.
+     */
+    public int getDataOffset(final int node) {
+        return node == ROOT ? 0 : offsets[node] + (Iff.isGroupChunkId(tags[node]) ? GROUP_HEADER_SIZE : CHUNK_HEADER_SIZE);
+    }
+
+    /**
+     * @return The number of bytes following the block header.
+     */
+    public int getDataLength(final int node) {
+        return node == ROOT || !Iff.isGroupChunkId(tags[node]) ? lengths[node] : lengths[node] - 4;
+    }
+
+    public boolean isForm(final int node) {
+        return tags[node] == Iff.TAG_FORM;
+    }
+
+    public boolean isChunk(final int node) {
+        return node != ROOT && !Iff.isGroupChunkId(tags[node]);
+    }
+
+    public int getParent(final int node) {
+        return parents[node];
+    }
+
+    /**
+     * @return The next sibling of the node, or {@link #NONE} if it is the last child of its parent.
+     */
+    public int getNextSibling(final int node) {
+        return nextSiblings[node];
+    }
+
+    /**
+     * @return The position of the node amongst the children of its parent.
+     */
+    public int getOrdinal(final int node) {
+        return ordinals[node];
+    }
+
+    public int getChildCount(final int node) {
+        return childCounts[node];
+    }
+
+    /**
+     * @return The child of the node at the given position, or {@link #NONE} if there is no such child.
+     */
+    public int getChild(final int node, final int ordinal) {
+        if (ordinal < 0 || ordinal >= childCounts[node])
+            return NONE;
+
+        return children[firstChildren[node] + ordinal];
+    }
+
+    /**
+     * Find the child of a node whose header starts at the given offset.
+     *
+     * @param node   The parent node.
+     * @param offset The absolute offset of the child block header.
+     * @param hint   The expected ordinal of the child. When this is right, or one short, the lookup is constant time.
+     * @return The child node, or {@link #NONE} if no child starts at the offset.
+     */
+    public int findChildAt(final int node, final int offset, final int hint) {
+        final int first = firstChildren[node];
+        final int count = childCounts[node];
+
+        if (hint >= 0 && hint < count) {
+            final int child = children[first + hint];
+
+            if (offsets[child] == offset)
+                return child;
+
+            if (hint + 1 < count && offsets[children[first + hint + 1]] == offset)
+                return children[first + hint + 1];
+        }
+
+        int low = 0;
+        int high = count - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int child = children[first + middle];
+
+            if (offsets[child] < offset) {
+                low = middle + 1;
+            } else if (offsets[child] > offset) {
+                high = middle - 1;
+            } else {
+                return child;
+            }
+        }
+
+        return NONE;
+    }
+
+    /**
+     * Find the first child of a node with the given name, at or after the given position.
+     *
+     * @param node    The parent node.
+     * @param name    The block name to find.
+     * @param ordinal The position to start searching from.
+     * @return The child node, or {@link #NONE} if there is no such child.
+     */
+    public int findChild(final int node, final int name, final int ordinal) {
+        final int slot = nameSlots[findSlot(nameKey(node, name))];
+
+        if (slot == NONE)
+            return NONE;
+
+        final int start = nameStarts[slot];
+        int low = 0;
+        int high = nameCounts[slot];
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (ordinals[namedChildren[start + middle]] < ordinal) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low < nameCounts[slot] ? namedChildren[start + low] : NONE;
+    }
+
+    private int findSlot(final long key) {
+        final int mask = nameKeys.length - 1;
+        int slot = (int) (key ^ (key >>> 29)) * 0x9E3779B9 & mask;
+
+        while (nameSlots[slot] != NONE && nameKeys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private static long nameKey(final int node, final int name) {
+        return ((long) node << 32) | (name & 0xFFFFFFFFL);
+    }
+
+    private static final class Builder {
+        private final ByteBuffer data;
+
+        private int size;
+        private int[] tags = new int[INITIAL_CAPACITY];
+        private int[] names = new int[INITIAL_CAPACITY];
+        private int[] offsets = new int[INITIAL_CAPACITY];
+        private int[] lengths = new int[INITIAL_CAPACITY];
+        private int[] parents = new int[INITIAL_CAPACITY];
+        private int[] nextSiblings = new int[INITIAL_CAPACITY];
+        private int[] ordinals = new int[INITIAL_CAPACITY];
+        private int[] childCounts = new int[INITIAL_CAPACITY];
+
+        Builder(final ByteBuffer data) {
+            this.data = data;
+        }
+
+        void scan(final int length) {
+            add(0, 0, 0, length, NONE);
+
+            //Pending ends and last children of the open groups, indexed by depth.
+            int[] ends = new int[16];
+            int[] groups = new int[16];
+            int[] lastChildren = new int[16];
+            int depth = 0;
+
+            ends[0] = length;
+            groups[0] = ROOT;
+            lastChildren[0] = NONE;
+
+            int offset = 0;
+
+            while (depth >= 0) {
+                if (offset == ends[depth]) {
+                    offset = ends[depth--];
+                    continue;
+                }
+
+                if (ends[depth] - offset < CHUNK_HEADER_SIZE)
+                    throw new IllegalArgumentException(String.format("Truncated block header at offset %d.", offset));
+
+                final int tag = getBigEndianInt(offset);
+                final int blockLength = getBigEndianInt(offset + 4);
+                final boolean group = Iff.isGroupChunkId(tag);
+
+                if (blockLength < (group ? 4 : 0) || blockLength > ends[depth] - offset - CHUNK_HEADER_SIZE) {
+                    throw new IllegalArgumentException(String.format("Block [%s] at offset %d overruns its parent.",
+                            Iff.getChunkName(tag),
+                            offset));
+                }
+
+                final int parent = groups[depth];
+                final int node = add(tag, group ? getBigEndianInt(offset + CHUNK_HEADER_SIZE) : tag, offset, blockLength, parent);
+
+                if (lastChildren[depth] != NONE)
+                    nextSiblings[lastChildren[depth]] = node;
+
+                lastChildren[depth] = node;
+                ordinals[node] = childCounts[parent]++;
+
+                if (group) {
+                    if (++depth == ends.length) {
+                        ends = Arrays.copyOf(ends, depth * 2);
+                        groups = Arrays.copyOf(groups, depth * 2);
+                        lastChildren = Arrays.copyOf(lastChildren, depth * 2);
+                    }
+
+                    ends[depth] = offset + CHUNK_HEADER_SIZE + blockLength;
+                    groups[depth] = node;
+                    lastChildren[depth] = NONE;
+                    offset += GROUP_HEADER_SIZE;
+                } else {
+                    offset += CHUNK_HEADER_SIZE + blockLength;
+                }
+            }
+        }
+
+        private int add(final int tag, final int name, final int offset, final int length, final int parent) {
+            if (size == tags.length) {
+                final int capacity = size * 2;
+                tags = Arrays.copyOf(tags, capacity);
+                names = Arrays.copyOf(names, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+                ordinals = Arrays.copyOf(ordinals, capacity);
+                childCounts = Arrays.copyOf(childCounts, capacity);
+            }
+
+            tags[size] = tag;
+            names[size] = name;
+            offsets[size] = offset;
+            lengths[size] = length;
+            parents[size] = parent;
+            nextSiblings[size] = NONE;
+            ordinals[size] = 0;
+            childCounts[size] = 0;
+
+            return size++;
+        }
+
+        private int getBigEndianInt(final int offset) {
+            final int value = data.getInt(offset);
+            return data.order() == ByteOrder.BIG_ENDIAN ? value : Iff.endianSwap32(value);
+        }
+    }
+}
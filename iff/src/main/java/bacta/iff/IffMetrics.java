@@ -0,0 +1,69 @@
+package bacta.iff;
+
+/**
+ * Receives counts of the work done by Iff instances, to find out where time goes when loading templates.
+ * <p>
+ * Every method does nothing by default, and {@link #NONE} is used unless another implementation is set with
+ * {@link Iff#setDefaultMetrics(IffMetrics)} or {@link Iff#setMetrics(IffMetrics)}. Calls are made once per block,
+ * seek, resize or string rather than once per value, and files are only timed when metrics other than {@link #NONE}
+ * are set, so the cost of instrumentation is negligible while it is not in use.
+ * <p>
+ * Implementations may be called from many threads at once.
+ */
+public interface IffMetrics {
+    IffMetrics NONE = new IffMetrics() {
+    };
+
+    default void formEntered() {
+    }
+
+    default void chunkEntered() {
+    }
+
+    /**
+     * @param bytes The number of bytes of the chunk that were read or skipped before exiting it.
+     */
+    default void chunkExited(final int bytes) {
+    }
+
+    /**
+     * @param steps The number of blocks looked at to find a block.
+     */
+    default void seeked(final int steps) {
+    }
+
+    /**
+     * @param oldCapacity The previous size of the data buffer.
+     * @param newCapacity The new size of the data buffer.
+     */
+    default void resized(final int oldCapacity, final int newCapacity) {
+    }
+
+    /**
+     * @param bytes The number of bytes moved within the data buffer to make room for, or close up after, an edit.
+     */
+    default void moved(final int bytes) {
+    }
+
+    /**
+     * @param bytes The number of bytes in a string that was read.
+     */
+    default void stringRead(final int bytes) {
+    }
+
+    /**
+     * @param fileName      The name of the file.
+     * @param bytes         The size of the file.
+     * @param durationNanos The time taken to read, map or inflate the file.
+     */
+    default void fileLoaded(final String fileName, final long bytes, final long durationNanos) {
+    }
+
+    /**
+     * @param fileName      The name of the file.
+     * @param bytes         The size of the file.
+     * @param durationNanos The time taken to write the file.
+     */
+    default void fileWritten(final String fileName, final long bytes, final long durationNanos) {
+    }
+}
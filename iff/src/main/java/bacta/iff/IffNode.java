@@ -0,0 +1,267 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A lazily decoded view of a block of an Iff.
+ * <p>
+ * A node records only the tag, offset and length of its block. The children of a form are found from their headers
+ * the first time they are asked for, and chunk values are decoded straight from the shared data each time they are
+ * read, at an offset from the start of the chunk. Blocks which are never visited are never scanned or decoded, so
+ * loading a large template and reading a handful of its chunks costs little more than those chunks.
+ * <p>
+ * Nodes are immutable views over an {@link IffImage}, and may be shared between threads.
+ */
+public final class IffNode {
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int GROUP_HEADER_SIZE = 12;
+    private static final IffNode[] NO_CHILDREN = new IffNode[0];
+
+    private final ByteBuffer data;
+    //The same bytes as data, backed by an array if the image has one, for decoding strings without copying them.
+    private final ByteBuffer decodeData;
+    private final int tag;
+    private final int name;
+    private final int offset;
+    private final int length;
+    private volatile IffNode[] children;
+
+    private IffNode(final ByteBuffer data,
+                    final ByteBuffer decodeData,
+                    final int tag,
+                    final int name,
+                    final int offset,
+                    final int length) {
+        this.data = data;
+        this.decodeData = decodeData;
+        this.tag = tag;
+        this.name = name;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Get a node for the top level of an image, whose children are the top level blocks of the file.
+     */
+    public static IffNode root(final IffImage image) {
+        final ByteBuffer data = image.getData();
+        final ByteBuffer arrayData = image.getArrayData();
+
+        return new IffNode(data, arrayData != null ? arrayData : data, Iff.TAG_FORM, 0, 0, data.remaining());
+    }
+
+    /**
+     * @return The first tag of the block; {@link Iff#TAG_FORM} for forms or the chunk id for chunks.
+     */
+    public int getTag() {
+        return tag;
+    }
+
+    /**
+     * @return The name of the block; the form name for forms or the chunk id for chunks. The root has no name.
+     */
+    public int getName() {
+        return name;
+    }
+
+    public boolean isForm() {
+        return Iff.isGroupChunkId(tag);
+    }
+
+    public boolean isChunk() {
+        return !isForm();
+    }
+
+    /**
+     * @return The number of bytes of content in the block, excluding its header.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public int getChildCount() {
+        return getChildArray().length;
+    }
+
+    /**
+     * @param ordinal The zero based position of the child within this form.
+     */
+    public IffNode getChild(final int ordinal) {
+        final IffNode[] children = getChildArray();
+        Preconditions.checkElementIndex(ordinal, children.length);
+        return children[ordinal];
+    }
+
+    /**
+     * Find the first child with a name.
+     *
+     * @param name The form name or chunk id.
+     * @return The child, or null if this form has no child with the name.
+     */
+    public IffNode findChild(final int name) {
+        for (final IffNode child : getChildArray()) {
+            if (child.name == name)
+                return child;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The children of this form in file order, or an empty list for a chunk.
+     */
+    public List<IffNode> getChildren() {
+        return Collections.unmodifiableList(Arrays.asList(getChildArray()));
+    }
+
+    public boolean getBoolean(final int position) {
+        return getByte(position) == 1;
+    }
+
+    public byte getByte(final int position) {
+        return data.get(check(position, 1));
+    }
+
+    public short getShort(final int position) {
+        return data.getShort(check(position, 2));
+    }
+
+    public int getInt(final int position) {
+        return data.getInt(check(position, 4));
+    }
+
+    public long getLong(final int position) {
+        return data.getLong(check(position, 8));
+    }
+
+    public float getFloat(final int position) {
+        return data.getFloat(check(position, 4));
+    }
+
+    /**
+     * Decode a null terminated string of single byte characters.
+     *
+     * @param position The offset of the string from the start of the chunk.
+     * @return The string, without its terminator. A string running to the end of the chunk has no terminator.
+     */
+    public String getString(final int position) {
+        final int start = check(position, 0);
+        final int end = offset + length;
+        int stop = start;
+
+        while (stop < end && data.get(stop) != 0)
+            ++stop;
+
+        return IffStringPool.decode(decodeData, start, stop - start);
+    }
+
+    /**
+     * @return A read only, little endian view of the content of this chunk, without copying it.
+     */
+    public ByteBuffer slice() {
+        checkChunk();
+
+        final ByteBuffer view = data.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return A new Iff over this block, which is its only top level block, for reading it with the cursor methods.
+     */
+    public Iff newCursor() {
+        final int headerSize = isForm() ? GROUP_HEADER_SIZE : CHUNK_HEADER_SIZE;
+        final ByteBuffer view = data.duplicate();
+
+        if (name == 0 && offset == 0) {
+            view.limit(length);
+        } else {
+            view.position(offset - headerSize);
+            view.limit(offset + length);
+        }
+
+        final ByteBuffer arrayView = decodeData.duplicate();
+        arrayView.limit(view.limit());
+        arrayView.position(view.position());
+
+        return new Iff(null, view, arrayView);
+    }
+
+    @Override
+    public String toString() {
+        return isForm()
+                ? String.format("FORM %s (%d)", Iff.getChunkName(name), length)
+                : String.format("%s (%d)", Iff.getChunkName(name), length);
+    }
+
+    private int check(final int position, final int size) {
+        checkChunk();
+        Preconditions.checkPositionIndexes(position, position + size, length);
+        return offset + position;
+    }
+
+    private void checkChunk() {
+        if (isForm())
+            throw new UnsupportedOperationException("Cannot read values from a form.");
+    }
+
+    /**
+     * Scan the headers of the children of this form once, on first use.
+     */
+    private IffNode[] getChildArray() {
+        IffNode[] children = this.children;
+
+        if (children != null)
+            return children;
+
+        if (isChunk()) {
+            children = NO_CHILDREN;
+        } else {
+            int count = 0;
+            int position = offset;
+            final int end = offset + length;
+
+            children = new IffNode[4];
+
+            while (position < end) {
+                if (end - position < CHUNK_HEADER_SIZE)
+                    throw new IllegalArgumentException(String.format("Truncated block header at offset %d.", position));
+
+                final int childTag = Iff.endianSwap32(data.getInt(position));
+                final int childLength = Iff.endianSwap32(data.getInt(position + 4));
+                final boolean group = Iff.isGroupChunkId(childTag);
+
+                if (childLength < (group ? 4 : 0) || childLength > end - position - CHUNK_HEADER_SIZE) {
+                    throw new IllegalArgumentException(String.format("Block [%s] at offset %d overruns its parent.",
+                            Iff.getChunkName(childTag),
+                            position));
+                }
+
+                final IffNode child = group
+                        ? new IffNode(data, decodeData, childTag,
+                        Iff.endianSwap32(data.getInt(position + CHUNK_HEADER_SIZE)),
+                        position + GROUP_HEADER_SIZE, childLength - 4)
+                        : new IffNode(data, decodeData, childTag, childTag, position + CHUNK_HEADER_SIZE, childLength);
+
+                if (count == children.length)
+                    children = Arrays.copyOf(children, count * 2);
+
+                children[count++] = child;
+                position += CHUNK_HEADER_SIZE + childLength;
+            }
+
+            children = count == 0 ? NO_CHILDREN : Arrays.copyOf(children, count);
+        }
+
+        this.children = children;
+        return children;
+    }
+}
@@ -0,0 +1,164 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decodes the child blocks of a form in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * The boundaries of the children are found from their header lengths alone, in a single pass that does not read their
+ * content. The children are then split between fork join tasks, and each child is decoded with its own {@link Iff}
+ * cursor over a read only view of the shared data. The cursor given to the decoder contains only that child, so the
+ * child is its first and only top level block.
+ * <p>
+ * The Iff being decoded must not be modified until decoding completes. Decoders run concurrently, so they must not
+ * share mutable state without synchronization.
+ */
+public final class IffParallelDecoder {
+    /**
+     * The number of tasks to create per thread of the pool, so that threads which finish early can steal work.
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    private IffParallelDecoder() {
+    }
+
+    /**
+     * Decode the children of the current form in parallel on the common pool.
+     *
+     * @see #decodeChildren(Iff, ForkJoinPool, Decoder)
+     */
+    public static <T> List<T> decodeChildren(final Iff iff, final Decoder<T> decoder) {
+        return decodeChildren(iff, ForkJoinPool.commonPool(), decoder);
+    }
+
+    /**
+     * Decode every child block of the current form in parallel.
+     * <p>
+     * The position of the Iff within the form is left unchanged.
+     *
+     * @param iff     The Iff to decode, positioned within the form whose children are decoded and not inside a chunk.
+     * @param pool    The pool to run the decoders on.
+     * @param decoder The decoder to call for each child.
+     * @return The decoded children, in file order.
+     */
+    public static <T> List<T> decodeChildren(final Iff iff, final ForkJoinPool pool, final Decoder<T> decoder) {
+        Preconditions.checkNotNull(pool);
+        Preconditions.checkNotNull(decoder);
+
+        final int count = iff.getNumberOfBlocks();
+        final int[] offsets = new int[count + 1];
+
+        final int used = iff.getCursorOffset();
+        int ordinal = 0;
+        iff.goToTopOfForm();
+
+        for (int index = 0; index < count; ++index) {
+            offsets[index] = iff.getCursorOffset();
+
+            if (offsets[index] < used)
+                ++ordinal;
+
+            iff.goForward(1);
+        }
+
+        offsets[count] = iff.getCursorOffset();
+
+        //Return to the block we started at, which uses the index if there is one.
+        iff.goToBlock(ordinal);
+
+        final Object[] results = new Object[count];
+        final int threshold = Math.max(1, count / (pool.getParallelism() * TASKS_PER_THREAD));
+
+        pool.invoke(new DecodeTask<>(iff.getFileName(),
+                iff.getSharedData(),
+                iff.getSharedArrayData(),
+                offsets,
+                0,
+                count,
+                threshold,
+                decoder,
+                results));
+
+        @SuppressWarnings("unchecked") final List<T> list = (List<T>) Arrays.asList(results);
+        return Collections.unmodifiableList(list);
+    }
+
+    private static final class DecodeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String fileName;
+        private final ByteBuffer data;
+        private final ByteBuffer arrayData;
+        private final int[] offsets;
+        private final int start;
+        private final int end;
+        private final int threshold;
+        private final Decoder<T> decoder;
+        private final Object[] results;
+
+        private DecodeTask(final String fileName,
+                           final ByteBuffer data,
+                           final ByteBuffer arrayData,
+                           final int[] offsets,
+                           final int start,
+                           final int end,
+                           final int threshold,
+                           final Decoder<T> decoder,
+                           final Object[] results) {
+            this.fileName = fileName;
+            this.data = data;
+            this.arrayData = arrayData;
+            this.offsets = offsets;
+            this.start = start;
+            this.end = end;
+            this.threshold = threshold;
+            this.decoder = decoder;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > threshold) {
+                final int middle = (start + end) >>> 1;
+
+                invokeAll(new DecodeTask<>(fileName, data, arrayData, offsets, start, middle, threshold, decoder, results),
+                        new DecodeTask<>(fileName, data, arrayData, offsets, middle, end, threshold, decoder, results));
+                return;
+            }
+
+            for (int index = start; index < end; ++index) {
+                final ByteBuffer child = data.duplicate();
+                child.limit(offsets[index + 1]);
+                child.position(offsets[index]);
+
+                final ByteBuffer childArray = arrayData != null ? arrayData.duplicate() : null;
+
+                if (childArray != null) {
+                    childArray.limit(offsets[index + 1]);
+                    childArray.position(offsets[index]);
+                }
+
+                results[index] = decoder.decode(new Iff(fileName, child, childArray));
+            }
+        }
+    }
+
+    /**
+     * Decodes a single child block.
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+        /**
+         * @param iff A cursor positioned at the child block, which is its only top level block.
+         * @return The decoded child.
+         */
+        T decode(final Iff iff);
+    }
+}
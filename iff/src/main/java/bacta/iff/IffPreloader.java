@@ -0,0 +1,249 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Reads many Iff files asynchronously, keeping a fixed number of reads in flight.
+ * <p>
+ * Files are read whole with an {@link AsynchronousFileChannel}, so no thread waits on the disk. Requests beyond the
+ * limit are queued, and the next queued file is started as soon as a read finishes, which keeps the disk queue full
+ * without flooding it. Parsing is handed to a separate executor, so decoding one file overlaps with reading the next.
+ * <p>
+ * A preloader may be shared between threads.
+ */
+public final class IffPreloader {
+    private final int maxInFlight;
+    private final Executor parseExecutor;
+    private final ConcurrentLinkedQueue<Read> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * @param maxInFlight   The most files to read at once.
+     * @param parseExecutor Runs the parsers given to {@link #load(Path, Function)}.
+     */
+    public IffPreloader(final int maxInFlight, final Executor parseExecutor) {
+        Preconditions.checkArgument(maxInFlight > 0, "max in flight must be positive");
+        Preconditions.checkNotNull(parseExecutor);
+
+        this.maxInFlight = maxInFlight;
+        this.parseExecutor = parseExecutor;
+    }
+
+    /**
+     * @return The number of files being read.
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return The number of files waiting to be read.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Read a file.
+     *
+     * @return A future completed with an Iff positioned at the start of the file, or completed exceptionally with the
+     * IOException if the file could not be read.
+     */
+    public CompletableFuture<Iff> load(final Path path) {
+        final Read read = new Read(path);
+
+        pending.add(read);
+        startReads();
+
+        return read.future;
+    }
+
+    /**
+     * Read a file, then parse it on the parse executor.
+     *
+     * @param parser Turns the Iff into a value, for example with {@link IffCodecRegistry#read(Iff)}.
+     * @return A future completed with the parsed value.
+     */
+    public <T> CompletableFuture<T> load(final Path path, final Function<? super Iff, ? extends T> parser) {
+        return load(path).thenApplyAsync(parser, parseExecutor);
+    }
+
+    /**
+     * Read many files.
+     *
+     * @return The futures of the files, in the order of the paths.
+     */
+    public List<CompletableFuture<Iff>> loadAll(final Collection<Path> paths) {
+        final List<CompletableFuture<Iff>> futures = new ArrayList<>(paths.size());
+
+        for (final Path path : paths)
+            futures.add(load(path));
+
+        return futures;
+    }
+
+    /**
+     * Read and parse many files.
+     *
+     * @return The futures of the parsed values, in the order of the paths.
+     */
+    public <T> List<CompletableFuture<T>> loadAll(final Collection<Path> paths,
+                                                  final Function<? super Iff, ? extends T> parser) {
+        final List<CompletableFuture<T>> futures = new ArrayList<>(paths.size());
+
+        for (final Path path : paths)
+            futures.add(load(path, parser));
+
+        return futures;
+    }
+
+    /**
+     * Start queued reads until the limit is reached or the queue is empty.
+     * <p>
+     * A slot is claimed before a read is taken from the queue, so that the limit holds when many threads start reads
+     * at once. A slot claimed for an empty queue is given back, and the queue checked again in case a read was queued
+     * in the meantime. Reads that fail to start give their slot back here rather than through {@link #finished()}, so
+     * that a long run of missing files does not recurse.
+     */
+    private void startReads() {
+        while (true) {
+            final int current = inFlight.get();
+
+            if (current >= maxInFlight)
+                return;
+
+            if (!inFlight.compareAndSet(current, current + 1))
+                continue;
+
+            final Read read = pending.poll();
+
+            if (read == null) {
+                inFlight.decrementAndGet();
+
+                if (pending.isEmpty())
+                    return;
+
+                continue;
+            }
+
+            if (!read.start())
+                inFlight.decrementAndGet();
+        }
+    }
+
+    private void finished() {
+        inFlight.decrementAndGet();
+        startReads();
+    }
+
+    /**
+     * The read of one file, which issues reads on the channel until the buffer is full.
+     */
+    private final class Read implements CompletionHandler<Integer, Void> {
+        private final Path path;
+        private final CompletableFuture<Iff> future = new CompletableFuture<>();
+        private AsynchronousFileChannel channel;
+        private ByteBuffer buffer;
+        private long start;
+
+        private Read(final Path path) {
+            this.path = path;
+        }
+
+        /**
+         * @return True if the read was started, or false if it failed at once.
+         */
+        private boolean start() {
+            start = System.nanoTime();
+
+            try {
+                channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+
+                final long size = channel.size();
+
+                if (size > Integer.MAX_VALUE)
+                    throw new IOException(String.format("File [%s] is too large to load.", path));
+
+                buffer = ByteBuffer.allocate((int) size);
+                channel.read(buffer, 0, null, this);
+
+                return true;
+            } catch (final IOException | RuntimeException e) {
+                close();
+                future.completeExceptionally(e);
+
+                return false;
+            }
+        }
+
+        @Override
+        public void completed(final Integer count, final Void attachment) {
+            if (count < 0 && buffer.hasRemaining()) {
+                failed(new IOException(String.format("File [%s] ended early.", path)), null);
+                return;
+            }
+
+            if (buffer.hasRemaining()) {
+                try {
+                    channel.read(buffer, buffer.position(), null, this);
+                } catch (final RuntimeException e) {
+                    failed(e, null);
+                }
+
+                return;
+            }
+
+            close();
+            buffer.flip();
+
+            final Iff iff;
+
+            try {
+                final IffMetrics metrics = Iff.getDefaultMetrics();
+                iff = new Iff(path.toString(), buffer);
+
+                if (metrics != IffMetrics.NONE)
+                    metrics.fileLoaded(iff.getFileName(), buffer.remaining(), System.nanoTime() - start);
+            } catch (final RuntimeException e) {
+                failed(e, null);
+                return;
+            }
+
+            finished();
+            future.complete(iff);
+        }
+
+        @Override
+        public void failed(final Throwable e, final Void attachment) {
+            close();
+            finished();
+            future.completeExceptionally(e);
+        }
+
+        private void close() {
+            if (channel == null)
+                return;
+
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                //The file has been read, or has already failed.
+            }
+        }
+    }
+}
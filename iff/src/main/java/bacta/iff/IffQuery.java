@@ -0,0 +1,167 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A compiled path selector over the blocks of an Iff, such as {@code SCOT/0012/PCNT} or {@code STOT/*}{@code /DERV/XXXX}.
+ * <p>
+ * Each segment of the path is a four character block name, or {@code *} to match any block. Every segment but the
+ * last matches a form, and the last segment matches a chunk. Paths are matched starting from the top of the form the
+ * Iff is currently in, so a path compiled once can be run against any number of Iff instances, or at any level of one.
+ * <p>
+ * A query compiles its path to tag ids up front and is immutable, so it may be shared between threads. Running a query
+ * does not allocate; it navigates the Iff with the regular cursor methods, which make use of an {@link IffIndex} when
+ * one is present.
+ */
+public final class IffQuery {
+    private static final int WILDCARD = 0;
+
+    private final String path;
+    private final int[] tags;
+
+    public static IffQuery compile(final String path) {
+        return new IffQuery(path);
+    }
+
+    private IffQuery(final String path) {
+        Preconditions.checkNotNull(path);
+
+        final String[] segments = path.split("/", -1);
+
+        this.path = path;
+        this.tags = new int[segments.length];
+
+        for (int index = 0; index < segments.length; ++index) {
+            final String segment = segments[index];
+
+            if ("*".equals(segment)) {
+                tags[index] = WILDCARD;
+            } else if (segment.length() == 4) {
+                tags[index] = Iff.createChunkId(segment);
+            } else {
+                throw new IllegalArgumentException(String.format("Invalid segment [%s] in path [%s].", segment, path));
+            }
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return The number of segments in the path.
+     */
+    public int getDepth() {
+        return tags.length;
+    }
+
+    /**
+     * Find the first chunk matching this path and enter it.
+     * <p>
+     * When a match is found, the Iff is left inside the matching chunk, ready to read its payload, and
+     * {@link #exit(Iff)} returns it to the form the query was run from. When no match is found, the Iff is left at the
+     * end of the form the query was run from.
+     *
+     * @param iff The Iff to search, positioned within a form and not inside a chunk.
+     * @return True if a matching chunk was found and entered.
+     */
+    public boolean find(final Iff iff) {
+        iff.goToTopOfForm();
+        return find(iff, 0);
+    }
+
+    /**
+     * Leave the chunk entered by a successful {@link #find(Iff)}, and the forms above it, returning to the form the
+     * query was run from.
+     */
+    public void exit(final Iff iff) {
+        iff.exitChunk();
+
+        for (int index = tags.length - 2; index >= 0; --index)
+            iff.exitForm();
+    }
+
+    /**
+     * Visit every chunk matching this path, in file order.
+     * <p>
+     * The visitor is called while the Iff is inside each matching chunk. It may read from the chunk, but must leave the
+     * Iff inside it. Afterwards the Iff is left at the end of the form the query was run from.
+     *
+     * @param iff     The Iff to search, positioned within a form and not inside a chunk.
+     * @param visitor The visitor to call for each match.
+     * @return The number of matching chunks.
+     */
+    public int forEach(final Iff iff, final Visitor visitor) {
+        iff.goToTopOfForm();
+        return forEach(iff, 0, visitor);
+    }
+
+    private boolean find(final Iff iff, final int depth) {
+        final int tag = tags[depth];
+        final boolean last = depth == tags.length - 1;
+
+        while (seek(iff, tag, last)) {
+            if (last) {
+                iff.enterChunk();
+                return true;
+            }
+
+            iff.enterForm();
+
+            if (find(iff, depth + 1))
+                return true;
+
+            iff.exitForm();
+        }
+
+        return false;
+    }
+
+    private int forEach(final Iff iff, final int depth, final Visitor visitor) {
+        final int tag = tags[depth];
+        final boolean last = depth == tags.length - 1;
+        int count = 0;
+
+        while (seek(iff, tag, last)) {
+            if (last) {
+                iff.enterChunk();
+                visitor.visit(iff);
+                iff.exitChunk();
+                ++count;
+            } else {
+                iff.enterForm();
+                count += forEach(iff, depth + 1, visitor);
+                iff.exitForm();
+            }
+        }
+
+        return count;
+    }
+
+    private static boolean seek(final Iff iff, final int tag, final boolean chunk) {
+        if (tag != WILDCARD)
+            return chunk ? iff.seekChunk(tag) : iff.seekForm(tag);
+
+        while (!iff.isAtEndOfForm()) {
+            if (chunk ? iff.isCurrentChunk() : iff.isCurrentForm())
+                return true;
+
+            iff.goForward(1);
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * Receives the chunks matched by {@link #forEach(Iff, Visitor)}.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(final Iff iff);
+    }
+}
@@ -0,0 +1,9 @@
+package bacta.iff;
+
+/**
+ * Declares that a class can be deserialized from an Iff file, and defines how it does it. The counterpart of
+ * {@link IffWritable}.
+ */
+public interface IffReadable {
+    void readFromIff(final Iff iff);
+}
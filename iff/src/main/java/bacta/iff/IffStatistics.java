@@ -0,0 +1,171 @@
+package bacta.iff;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics which keep running totals, suitable for sharing between every Iff in a process.
+ * <p>
+ * Totals are kept in {@link LongAdder}s, so threads recording at the same time do not contend.
+ */
+public final class IffStatistics implements IffMetrics {
+    private final LongAdder formsEntered = new LongAdder();
+    private final LongAdder chunksEntered = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder seeks = new LongAdder();
+    private final LongAdder seekSteps = new LongAdder();
+    private final LongAdder resizes = new LongAdder();
+    private final LongAdder bytesMoved = new LongAdder();
+    private final LongAdder stringBytesRead = new LongAdder();
+    private final LongAdder filesLoaded = new LongAdder();
+    private final LongAdder bytesLoaded = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder filesWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+
+    @Override
+    public void formEntered() {
+        formsEntered.increment();
+    }
+
+    @Override
+    public void chunkEntered() {
+        chunksEntered.increment();
+    }
+
+    @Override
+    public void chunkExited(final int bytes) {
+        bytesRead.add(bytes);
+    }
+
+    @Override
+    public void seeked(final int steps) {
+        seeks.increment();
+        seekSteps.add(steps);
+    }
+
+    @Override
+    public void resized(final int oldCapacity, final int newCapacity) {
+        resizes.increment();
+    }
+
+    @Override
+    public void moved(final int bytes) {
+        bytesMoved.add(bytes);
+    }
+
+    @Override
+    public void stringRead(final int bytes) {
+        stringBytesRead.add(bytes);
+    }
+
+    @Override
+    public void fileLoaded(final String fileName, final long bytes, final long durationNanos) {
+        filesLoaded.increment();
+        bytesLoaded.add(bytes);
+        loadNanos.add(durationNanos);
+    }
+
+    @Override
+    public void fileWritten(final String fileName, final long bytes, final long durationNanos) {
+        filesWritten.increment();
+        bytesWritten.add(bytes);
+        writeNanos.add(durationNanos);
+    }
+
+    public long getFormsEntered() {
+        return formsEntered.sum();
+    }
+
+    public long getChunksEntered() {
+        return chunksEntered.sum();
+    }
+
+    /**
+     * @return The number of chunk bytes read or skipped, counted as chunks are exited.
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getSeeks() {
+        return seeks.sum();
+    }
+
+    /**
+     * @return The number of blocks looked at by all seeks. Much more than {@link #getSeeks()} means seeks are
+     * walking wide forms, which an {@link IffIndex} avoids.
+     */
+    public long getSeekSteps() {
+        return seekSteps.sum();
+    }
+
+    public long getResizes() {
+        return resizes.sum();
+    }
+
+    /**
+     * @return The number of bytes copied when resizing data buffers and moving data to make room for edits.
+     */
+    public long getBytesMoved() {
+        return bytesMoved.sum();
+    }
+
+    public long getStringBytesRead() {
+        return stringBytesRead.sum();
+    }
+
+    public long getFilesLoaded() {
+        return filesLoaded.sum();
+    }
+
+    public long getBytesLoaded() {
+        return bytesLoaded.sum();
+    }
+
+    public long getLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    public long getFilesWritten() {
+        return filesWritten.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getWriteNanos() {
+        return writeNanos.sum();
+    }
+
+    /**
+     * Set every total back to zero. Counts recorded while resetting may be lost.
+     */
+    public void reset() {
+        formsEntered.reset();
+        chunksEntered.reset();
+        bytesRead.reset();
+        seeks.reset();
+        seekSteps.reset();
+        resizes.reset();
+        bytesMoved.reset();
+        stringBytesRead.reset();
+        filesLoaded.reset();
+        bytesLoaded.reset();
+        loadNanos.reset();
+        filesWritten.reset();
+        bytesWritten.reset();
+        writeNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IffStatistics{forms=%d, chunks=%d, bytesRead=%d, seeks=%d, seekSteps=%d, resizes=%d, " +
+                        "bytesMoved=%d, stringBytes=%d, filesLoaded=%d, bytesLoaded=%d, loadNanos=%d, " +
+                        "filesWritten=%d, bytesWritten=%d, writeNanos=%d}",
+                getFormsEntered(), getChunksEntered(), getBytesRead(), getSeeks(), getSeekSteps(), getResizes(),
+                getBytesMoved(), getStringBytesRead(), getFilesLoaded(), getBytesLoaded(), getLoadNanos(),
+                getFilesWritten(), getBytesWritten(), getWriteNanos());
+    }
+}
@@ -0,0 +1,363 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A pull parser that streams Iff data from a channel through a small fixed size buffer.
+ * <p>
+ * Unlike {@link Iff}, the file never needs to be resident in memory. Calling {@link #nextEvent()} steps through the
+ * blocks in file order, and chunk payloads are read with the {@code read*} methods while positioned in a chunk. Unread
+ * payload is skipped when moving to the next event, and {@link #skip()} skips the rest of the current block. When the
+ * channel is seekable, skipped bytes are passed over by changing the channel position rather than by reading them.
+ * <p>
+ * A reader is not thread safe.
+ */
+public final class IffStreamReader implements Closeable {
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int GROUP_HEADER_SIZE = 12;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int DEFAULT_STACK_DEPTH = 16;
+    private static final int UNBOUNDED = -1;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    private int[] tags = new int[DEFAULT_STACK_DEPTH];
+    private int[] names = new int[DEFAULT_STACK_DEPTH];
+    private int[] lengths = new int[DEFAULT_STACK_DEPTH];
+    private int[] remaining = new int[DEFAULT_STACK_DEPTH];
+    private int depth;
+    private int current;
+    private boolean inChunk;
+    private boolean endOfStream;
+    private byte[] stringBytes = new byte[64];
+
+    public IffStreamReader(final ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel    The channel to read from. If it is a {@link SeekableByteChannel}, skipping is done by position.
+     * @param bufferSize The size of the read buffer. Must be large enough to hold a form header.
+     */
+    public IffStreamReader(final ReadableByteChannel channel, final int bufferSize) {
+        Preconditions.checkNotNull(channel);
+        Preconditions.checkArgument(bufferSize >= GROUP_HEADER_SIZE, "buffer too small");
+
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.flip();
+        this.remaining[0] = UNBOUNDED;
+    }
+
+    public IffStreamReader(final InputStream inputStream) {
+        this(Channels.newChannel(inputStream));
+    }
+
+    public static IffStreamReader open(final Path path) throws IOException {
+        return new IffStreamReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Advance to the next block boundary.
+     * <p>
+     * Any unread payload of the current chunk is skipped. A form produces {@link Event#START_FORM}, followed by the
+     * events of its children and then {@link Event#END}. A chunk produces {@link Event#START_CHUNK} followed by
+     * {@link Event#END}.
+     *
+     * @return The event reached.
+     * @throws IOException If the channel could not be read, or ended inside a block.
+     */
+    public Event nextEvent() throws IOException {
+        if (endOfStream)
+            return Event.END_DOCUMENT;
+
+        if (inChunk) {
+            skipBytes(remaining[depth]);
+            remaining[depth] = 0;
+            inChunk = false;
+        }
+
+        if (depth > 0 && remaining[depth] == 0) {
+            current = depth--;
+            return Event.END;
+        }
+
+        if (depth == 0 && !fill(1)) {
+            endOfStream = true;
+            current = 0;
+            return Event.END_DOCUMENT;
+        }
+
+        ensure(CHUNK_HEADER_SIZE);
+
+        final int tag = Iff.endianSwap32(buffer.getInt());
+        final int length = Iff.endianSwap32(buffer.getInt());
+        final boolean group = Iff.isGroupChunkId(tag);
+
+        if (length < (group ? 4 : 0) || (remaining[depth] != UNBOUNDED && length > remaining[depth] - CHUNK_HEADER_SIZE)) {
+            throw new IOException(String.format("Block [%s] overruns its parent.",
+                    Iff.getChunkName(tag)));
+        }
+
+        if (remaining[depth] != UNBOUNDED)
+            remaining[depth] -= CHUNK_HEADER_SIZE + length;
+
+        int name = tag;
+
+        if (group) {
+            ensure(GROUP_HEADER_SIZE - CHUNK_HEADER_SIZE);
+            name = Iff.endianSwap32(buffer.getInt());
+        }
+
+        if (++depth == tags.length) {
+            tags = Arrays.copyOf(tags, depth * 2);
+            names = Arrays.copyOf(names, depth * 2);
+            lengths = Arrays.copyOf(lengths, depth * 2);
+            remaining = Arrays.copyOf(remaining, depth * 2);
+        }
+
+        tags[depth] = tag;
+        names[depth] = name;
+        lengths[depth] = group ? length - 4 : length;
+        remaining[depth] = lengths[depth];
+        current = depth;
+        inChunk = !group;
+
+        return group ? Event.START_FORM : Event.START_CHUNK;
+    }
+
+    /**
+     * Skip the rest of the innermost open block, so that the next event is its {@link Event#END}.
+     */
+    public void skip() throws IOException {
+        if (depth == 0)
+            throw new IllegalStateException("Not inside a block.");
+
+        skipBytes(remaining[depth]);
+        remaining[depth] = 0;
+        inChunk = false;
+    }
+
+    /**
+     * @return The first tag of the block of the last event; {@link Iff#TAG_FORM} for forms or the chunk id for chunks.
+     */
+    public int getTag() {
+        return tags[current];
+    }
+
+    /**
+     * @return The name of the block of the last event.
+     */
+    public int getName() {
+        return names[current];
+    }
+
+    /**
+     * @return The number of bytes of content in the block of the last event, excluding its header.
+     */
+    public int getLength() {
+        return lengths[current];
+    }
+
+    /**
+     * @return The number of blocks currently open.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean isInChunk() {
+        return inChunk;
+    }
+
+    public int getChunkLengthLeft() {
+        if (!inChunk)
+            throw new UnsupportedOperationException("Not in a chunk.");
+
+        return remaining[depth];
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() == 1;
+    }
+
+    public byte readByte() throws IOException {
+        consume(1);
+        return buffer.get();
+    }
+
+    public short readShort() throws IOException {
+        consume(2);
+        return buffer.getShort();
+    }
+
+    public int readInt() throws IOException {
+        consume(4);
+        return buffer.getInt();
+    }
+
+    public long readLong() throws IOException {
+        consume(8);
+        return buffer.getLong();
+    }
+
+    public float readFloat() throws IOException {
+        consume(4);
+        return buffer.getFloat();
+    }
+
+    public String readString() throws IOException {
+        if (!inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        if (remaining[depth] <= 0)
+            throw new UnsupportedOperationException("At end of chunk, cannot read.");
+
+        int length = 0;
+
+        while (remaining[depth] > 0) {
+            ensure(1);
+            --remaining[depth];
+
+            final byte b = buffer.get();
+
+            if (b == 0)
+                break;
+
+            if (length == stringBytes.length)
+                stringBytes = Arrays.copyOf(stringBytes, length * 2);
+
+            stringBytes[length++] = b;
+        }
+
+        return new String(stringBytes, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Stream payload bytes of the current chunk into a buffer.
+     *
+     * @param destination The buffer to fill. At most its remaining bytes are read.
+     * @return The number of bytes read, or -1 if the chunk has no payload left.
+     */
+    public int read(final ByteBuffer destination) throws IOException {
+        if (!inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        if (remaining[depth] == 0)
+            return -1;
+
+        final int length = Math.min(destination.remaining(), remaining[depth]);
+        int left = length;
+
+        while (left > 0) {
+            if (!buffer.hasRemaining() && !fill(1))
+                throw new EOFException();
+
+            final int count = Math.min(left, buffer.remaining());
+            final int limit = buffer.limit();
+            buffer.limit(buffer.position() + count);
+            destination.put(buffer);
+            buffer.limit(limit);
+            left -= count;
+        }
+
+        remaining[depth] -= length;
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void consume(final int size) throws IOException {
+        if (!inChunk)
+            throw new UnsupportedOperationException("Cannot read while not in a chunk.");
+
+        if (remaining[depth] < size)
+            throw new BufferOverflowException();
+
+        ensure(size);
+        remaining[depth] -= size;
+    }
+
+    private void ensure(final int size) throws IOException {
+        if (!fill(size))
+            throw new EOFException();
+    }
+
+    /**
+     * Make sure at least the given number of bytes are buffered.
+     *
+     * @return False if the channel ended first.
+     */
+    private boolean fill(final int size) throws IOException {
+        if (buffer.remaining() >= size)
+            return true;
+
+        buffer.compact();
+
+        try {
+            while (buffer.position() < size) {
+                if (channel.read(buffer) < 0)
+                    return false;
+            }
+        } finally {
+            buffer.flip();
+        }
+
+        return true;
+    }
+
+    private void skipBytes(int size) throws IOException {
+        final int buffered = Math.min(size, buffer.remaining());
+        buffer.position(buffer.position() + buffered);
+        size -= buffered;
+
+        if (size == 0)
+            return;
+
+        if (channel instanceof SeekableByteChannel) {
+            final SeekableByteChannel seekable = (SeekableByteChannel) channel;
+
+            if (seekable.position() + size > seekable.size())
+                throw new EOFException();
+
+            seekable.position(seekable.position() + size);
+            return;
+        }
+
+        while (size > 0) {
+            if (!fill(1))
+                throw new EOFException();
+
+            final int count = Math.min(size, buffer.remaining());
+            buffer.position(buffer.position() + count);
+            size -= count;
+        }
+    }
+
+    public enum Event {
+        START_FORM,
+        START_CHUNK,
+        END,
+        END_DOCUMENT
+    }
+}
@@ -0,0 +1,137 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A bounded table of strings decoded from Iff data, so that strings which repeat across many files, such as template
+ * paths, are decoded once and shared.
+ * <p>
+ * Strings are looked up by their bytes, so a hit does not allocate. The table has a fixed number of slots and a new
+ * string replaces an older one when its slots are full, so the pool never grows past its capacity. Strings longer than
+ * the maximum length are always decoded and never pooled.
+ * <p>
+ * A pool may be shared between threads. Slots are updated without locking; since strings are immutable, a racing
+ * reader sees either the old or the new string in a slot, and at worst decodes a string that was already pooled.
+ */
+public final class IffStringPool {
+    private static final int DEFAULT_CAPACITY = 16384;
+    private static final int DEFAULT_MAX_LENGTH = 256;
+
+    private final String[] strings;
+    private final int mask;
+    private final int maxLength;
+
+    public IffStringPool() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity  The number of strings the pool can hold. Rounded up to a power of two.
+     * @param maxLength The length of the longest string to pool.
+     */
+    public IffStringPool(final int capacity, final int maxLength) {
+        Preconditions.checkArgument(capacity > 1, "capacity must be greater than 1");
+        Preconditions.checkArgument(maxLength >= 0, "max length must not be negative");
+
+        int size = 2;
+
+        while (size < capacity)
+            size <<= 1;
+
+        this.strings = new String[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Get the string for a range of single byte characters, decoding it only if it is not already pooled.
+     *
+     * @param data     The buffer holding the characters.
+     * @param position The absolute position of the first character.
+     * @param length   The number of characters.
+     * @return The pooled or newly decoded string.
+     */
+    public String get(final ByteBuffer data, final int position, final int length) {
+        if (length > maxLength)
+            return decode(data, position, length);
+
+        int hash = length;
+
+        for (int index = 0; index < length; ++index)
+            hash = 31 * hash + data.get(position + index);
+
+        hash ^= hash >>> 16;
+
+        final int first = hash & mask;
+        final int second = (first + 1) & mask;
+
+        final String firstString = strings[first];
+
+        if (matches(firstString, data, position, length))
+            return firstString;
+
+        final String secondString = strings[second];
+
+        if (matches(secondString, data, position, length))
+            return secondString;
+
+        final String string = decode(data, position, length);
+
+        //Fill an empty slot if there is one, otherwise move the first slot's string to the second slot.
+        if (firstString != null && secondString == null) {
+            strings[second] = string;
+        } else {
+            if (firstString != null)
+                strings[second] = firstString;
+
+            strings[first] = string;
+        }
+
+        return string;
+    }
+
+    /**
+     * Remove every string from the pool.
+     */
+    public void clear() {
+        for (int index = 0; index < strings.length; ++index)
+            strings[index] = null;
+    }
+
+    /**
+     * @return The maximum number of strings the pool holds.
+     */
+    public int getCapacity() {
+        return strings.length;
+    }
+
+    private static boolean matches(final String string, final ByteBuffer data, final int position, final int length) {
+        if (string == null || string.length() != length)
+            return false;
+
+        for (int index = 0; index < length; ++index) {
+            if (string.charAt(index) != (data.get(position + index) & 0xFF))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Decode a range of single byte characters, copying directly from the backing array when there is one.
+     */
+    static String decode(final ByteBuffer data, final int position, final int length) {
+        if (data.hasArray())
+            return new String(data.array(), data.arrayOffset() + position, length, StandardCharsets.ISO_8859_1);
+
+        final byte[] bytes = new byte[length];
+        final ByteBuffer view = data.duplicate();
+        view.position(position);
+        view.get(bytes);
+
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
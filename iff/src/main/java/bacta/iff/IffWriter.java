@@ -0,0 +1,338 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Writes a new Iff sequentially, appending every block and value to the end of a growing buffer.
+ * <p>
+ * This mirrors the insert methods of {@link Iff}, but never moves existing data. The start of every open block is kept
+ * on a stack, and the length of a block is written into its header once, when the block is exited. Writing N values
+ * therefore costs O(N) regardless of how deeply they are nested.
+ * <p>
+ * A writer is not thread safe. It may be reused for another Iff after calling {@link #reset()}.
+ */
+public final class IffWriter {
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int GROUP_HEADER_SIZE = 12;
+    private static final int DEFAULT_INITIAL_SIZE = 1024;
+    private static final int DEFAULT_STACK_DEPTH = 16;
+
+    private ByteBuffer data;
+    private int[] starts = new int[DEFAULT_STACK_DEPTH];
+    private int stackDepth;
+    private boolean inChunk;
+
+    public IffWriter() {
+        this(DEFAULT_INITIAL_SIZE);
+    }
+
+    /**
+     * @param initialSize Initial size of the buffer. It is doubled as needed.
+     */
+    public IffWriter(final int initialSize) {
+        Preconditions.checkArgument(initialSize > 0, "initial size must be positive");
+
+        this.data = ByteBuffer.allocate(initialSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Discard everything written so far, keeping the buffer for reuse.
+     */
+    public void reset() {
+        data.clear();
+        stackDepth = 0;
+        inChunk = false;
+    }
+
+    /**
+     * @return The number of bytes written so far.
+     */
+    public int size() {
+        return data.position();
+    }
+
+    public int getStackDepth() {
+        return stackDepth;
+    }
+
+    public void insertForm(final int nameTag) {
+        Preconditions.checkArgument(!inChunk, "inside chunk");
+
+        ensureCapacity(GROUP_HEADER_SIZE);
+        push();
+
+        data.putInt(Iff.endianSwap32(Iff.TAG_FORM));
+        data.putInt(0);
+        data.putInt(Iff.endianSwap32(nameTag));
+    }
+
+    public void insertChunk(final int tagName) {
+        Preconditions.checkArgument(!inChunk, "inside chunk");
+
+        ensureCapacity(CHUNK_HEADER_SIZE);
+        push();
+
+        data.putInt(Iff.endianSwap32(tagName));
+        data.putInt(0);
+
+        inChunk = true;
+    }
+
+    public void exitForm() {
+        exitForm(0);
+    }
+
+    /**
+     * Close the current form, writing its length into its header.
+     *
+     * @param formId The expected name of the form, or 0 to skip the check.
+     */
+    public void exitForm(final int formId) {
+        Preconditions.checkState(stackDepth > 0, "Trying to exit root.");
+        Preconditions.checkState(!inChunk, "Tried to exit a form while within a chunk.");
+
+        final int start = starts[stackDepth - 1];
+
+        if (formId != 0) {
+            final int currentId = Iff.endianSwap32(data.getInt(start + CHUNK_HEADER_SIZE));
+
+            if (currentId != formId) {
+                throw new IllegalArgumentException(String.format("Trying to exit form [%s] but found [%s].",
+                        Iff.getChunkName(formId),
+                        Iff.getChunkName(currentId)));
+            }
+        }
+
+        pop(start);
+    }
+
+    public void exitChunk() {
+        exitChunk(0);
+    }
+
+    /**
+     * Close the current chunk, writing its length into its header.
+     *
+     * @param chunkId The expected id of the chunk, or 0 to skip the check.
+     */
+    public void exitChunk(final int chunkId) {
+        Preconditions.checkState(inChunk, "not in chunk");
+
+        final int start = starts[stackDepth - 1];
+
+        if (chunkId != 0) {
+            final int currentId = Iff.endianSwap32(data.getInt(start));
+
+            if (currentId != chunkId) {
+                throw new IllegalArgumentException(String.format("Trying to exit chunk [%s] but found [%s].",
+                        Iff.getChunkName(chunkId),
+                        Iff.getChunkName(currentId)));
+            }
+        }
+
+        pop(start);
+        inChunk = false;
+    }
+
+    public void insertChunkData(final boolean newData) {
+        insertChunkData((byte) (newData ? 1 : 0));
+    }
+
+    public void insertChunkData(final byte newData) {
+        reserve(1);
+        data.put(newData);
+    }
+
+    public void insertChunkData(final short newData) {
+        reserve(2);
+        data.putShort(newData);
+    }
+
+    public void insertChunkData(final int newData) {
+        reserve(4);
+        data.putInt(newData);
+    }
+
+    public void insertChunkData(final long newData) {
+        reserve(8);
+        data.putLong(newData);
+    }
+
+    public void insertChunkData(final float newData) {
+        reserve(4);
+        data.putFloat(newData);
+    }
+
+    /**
+     * Append a null terminated string to the current chunk.
+     */
+    public void insertChunkData(final String newData) {
+        Preconditions.checkNotNull(newData);
+
+        final byte[] bytes = newData.getBytes(StandardCharsets.ISO_8859_1);
+        reserve(bytes.length + 1);
+        data.put(bytes);
+        data.put((byte) 0);
+    }
+
+    public void insertChunkString(final String value) {
+        insertChunkData(value);
+    }
+
+    public void insertChunkData(final byte[] newData, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, newData.length);
+        reserve(length);
+        data.put(newData, offset, length);
+    }
+
+    public void insertChunkData(final short[] newData, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, newData.length);
+        reserve(length * 2);
+        data.asShortBuffer().put(newData, offset, length);
+        data.position(data.position() + length * 2);
+    }
+
+    public void insertChunkData(final short[] newData) {
+        insertChunkData(newData, 0, newData.length);
+    }
+
+    public void insertChunkData(final int[] newData, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, newData.length);
+        reserve(length * 4);
+        data.asIntBuffer().put(newData, offset, length);
+        data.position(data.position() + length * 4);
+    }
+
+    public void insertChunkData(final int[] newData) {
+        insertChunkData(newData, 0, newData.length);
+    }
+
+    public void insertChunkData(final long[] newData, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, newData.length);
+        reserve(length * 8);
+        data.asLongBuffer().put(newData, offset, length);
+        data.position(data.position() + length * 8);
+    }
+
+    public void insertChunkData(final long[] newData) {
+        insertChunkData(newData, 0, newData.length);
+    }
+
+    public void insertChunkData(final float[] newData, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, newData.length);
+        reserve(length * 4);
+        data.asFloatBuffer().put(newData, offset, length);
+        data.position(data.position() + length * 4);
+    }
+
+    public void insertChunkData(final float[] newData) {
+        insertChunkData(newData, 0, newData.length);
+    }
+
+    /**
+     * Append the remaining bytes of a buffer to the current chunk.
+     */
+    public void insertChunkData(final ByteBuffer newData) {
+        reserve(newData.remaining());
+        data.put(newData);
+    }
+
+    /**
+     * @return A copy of the bytes written so far.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data.array(), data.position());
+    }
+
+    /**
+     * Create an Iff for reading over a copy of the bytes written so far.
+     */
+    public Iff toIff(final String fileName) {
+        Preconditions.checkState(stackDepth == 0, "blocks still open");
+        return new Iff(fileName, toByteArray());
+    }
+
+    /**
+     * Write the bytes written so far to a channel.
+     */
+    public void writeTo(final WritableByteChannel channel) throws IOException {
+        Preconditions.checkState(stackDepth == 0, "blocks still open");
+
+        final ByteBuffer buffer = data.duplicate();
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Write the bytes written so far to a file, replacing it if it exists.
+     */
+    public void write(final Path path) throws IOException {
+        write(path, false);
+    }
+
+    /**
+     * Write the bytes written so far to a file, replacing it if it exists.
+     * <p>
+     * The bytes are written to a temporary file which is then renamed over the target, so readers never see a partially
+     * written file.
+     *
+     * @param sync True to force the bytes to the storage device before the file is replaced.
+     */
+    public void write(final Path path, final boolean sync) throws IOException {
+        Preconditions.checkState(stackDepth == 0, "blocks still open");
+
+        final IffMetrics metrics = Iff.getDefaultMetrics();
+        final long start = metrics != IffMetrics.NONE ? System.nanoTime() : 0;
+
+        final ByteBuffer buffer = data.duplicate();
+        buffer.flip();
+        IffFiles.write(path, buffer, sync);
+
+        if (metrics != IffMetrics.NONE)
+            metrics.fileWritten(path.toString(), size(), System.nanoTime() - start);
+    }
+
+    private void push() {
+        if (stackDepth == starts.length)
+            starts = Arrays.copyOf(starts, stackDepth * 2);
+
+        starts[stackDepth++] = data.position();
+    }
+
+    private void pop(final int start) {
+        data.putInt(start + 4, Iff.endianSwap32(data.position() - start - CHUNK_HEADER_SIZE));
+        --stackDepth;
+    }
+
+    private void reserve(final int size) {
+        Preconditions.checkState(inChunk, "not in chunk");
+        ensureCapacity(size);
+    }
+
+    private void ensureCapacity(final int size) {
+        final int neededLength = data.position() + size;
+
+        if (neededLength <= data.capacity())
+            return;
+
+        int newLength = data.capacity() * 2;
+
+        while (newLength < neededLength)
+            newLength *= 2;
+
+        final ByteBuffer newData = ByteBuffer.allocate(newLength).order(ByteOrder.LITTLE_ENDIAN);
+        data.flip();
+        newData.put(data);
+        data = newData;
+    }
+}
@@ -0,0 +1,388 @@
+package bacta.iff;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads Iff files directly out of a TRE archive, without unpacking it.
+ * <p>
+ * The archive is memory mapped, and its table of contents and file names are read once when it is opened, into a
+ * hash table from file name to record. Records stored uncompressed are returned as an {@link Iff} over the mapping
+ * itself, without copying. Compressed records are inflated straight into the array of the returned Iff, from the array
+ * behind the archive if it has one, or else from a copy of the compressed bytes. The inflater, which is reset rather
+ * than recreated, and the buffer for copies are reused between calls.
+ * <p>
+ * File names are matched without regard to case, and with either kind of slash. An archive is immutable once opened
+ * and may be shared between threads.
+ */
+public final class TreArchive {
+    private static final int ID_TREE = Iff.createChunkId("TREE");
+    private static final int ID_0005 = Iff.createChunkId("0005");
+    private static final int HEADER_SIZE = 36;
+    private static final int RECORD_SIZE = 24;
+
+    private static final int COMPRESSOR_NONE = 0;
+    private static final int COMPRESSOR_ZLIB = 2;
+
+    private final String fileName;
+    private final ByteBuffer data;
+    //The same bytes as data, backed by an array and never written to, or null if the archive has no array.
+    private final ByteBuffer arrayData;
+    private final int size;
+    private final String[] names;
+    private final int[] lengths;
+    private final int[] offsets;
+    private final int[] compressors;
+    private final int[] compressedLengths;
+    private final int[] slots;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Inflation> inflations = new ConcurrentLinkedQueue<>();
+
+    private TreArchive(final String fileName, final ByteBuffer data, final ByteBuffer arrayData) throws IOException {
+        this.fileName = fileName;
+        this.data = data;
+        this.arrayData = arrayData;
+
+        if (data.remaining() < HEADER_SIZE)
+            throw new IOException(String.format("Archive [%s] is too short.", fileName));
+
+        //The tags are stored reversed, as EERT and 5000, so they read the right way round as little endian.
+        final int fileId = data.getInt(0);
+        final int version = data.getInt(4);
+
+        if (fileId != ID_TREE || version != ID_0005) {
+            throw new IOException(String.format("Archive [%s] is not a supported TRE file, found [%s] version [%s].",
+                    fileName,
+                    Iff.getChunkName(fileId),
+                    Iff.getChunkName(version)));
+        }
+
+        this.size = data.getInt(8);
+
+        if (size < 0 || size > data.remaining() / RECORD_SIZE)
+            throw new IOException(String.format("Archive [%s] has an invalid number of records.", fileName));
+
+        final int tocOffset = data.getInt(12);
+        final int tocCompressor = data.getInt(16);
+        final int tocLength = data.getInt(20);
+        final int nameCompressor = data.getInt(24);
+        final int nameLength = data.getInt(28);
+        final int nameUncompressedLength = data.getInt(32);
+
+        final Inflation inflation = acquire();
+        final ByteBuffer toc;
+        final ByteBuffer nameBlock;
+
+        try {
+            toc = readBlock(inflation, tocOffset, tocCompressor, tocLength, size * RECORD_SIZE);
+            nameBlock = readBlock(inflation,
+                    tocOffset + (tocCompressor == COMPRESSOR_NONE ? size * RECORD_SIZE : tocLength),
+                    nameCompressor,
+                    nameLength,
+                    nameUncompressedLength);
+        } finally {
+            release(inflation);
+        }
+
+        this.names = new String[size];
+        this.lengths = new int[size];
+        this.offsets = new int[size];
+        this.compressors = new int[size];
+        this.compressedLengths = new int[size];
+
+        int tableSize = 2;
+
+        while (tableSize < size * 2)
+            tableSize <<= 1;
+
+        this.slots = new int[tableSize];
+        this.mask = tableSize - 1;
+
+        for (int record = 0; record < size; ++record) {
+            final int position = record * RECORD_SIZE;
+
+            //The first field of a record is the CRC of its name, which the hash table makes unnecessary.
+            lengths[record] = toc.getInt(position + 4);
+            offsets[record] = toc.getInt(position + 8);
+            compressors[record] = toc.getInt(position + 12);
+            compressedLengths[record] = toc.getInt(position + 16);
+            names[record] = normalize(readName(nameBlock, toc.getInt(position + 20)));
+
+            if (offsets[record] < 0 || storedLength(record) < 0 || (long) offsets[record] + storedLength(record) > data.remaining())
+                throw new IOException(String.format("Record [%s] overruns archive [%s].", names[record], fileName));
+
+            //Later records replace earlier records with the same name.
+            final int slot = findSlot(names[record]);
+            slots[slot] = record + 1;
+        }
+    }
+
+    /**
+     * Open an archive by memory mapping it read only.
+     */
+    public static TreArchive open(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException(String.format("Archive [%s] is too large to map.", path));
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return of(path.toString(), buffer);
+        }
+    }
+
+    /**
+     * Open an archive held in a buffer. The remaining bytes of the buffer are shared, not copied.
+     */
+    public static TreArchive of(final String fileName, final ByteBuffer buffer) throws IOException {
+        final ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer view = slice.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+
+        return new TreArchive(fileName, view, slice.hasArray() ? slice : null);
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return The number of records in the archive.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The name of a record, in lower case with forward slashes.
+     */
+    public String getName(final int record) {
+        Preconditions.checkElementIndex(record, size);
+        return names[record];
+    }
+
+    /**
+     * @return The uncompressed length of a record.
+     */
+    public int getLength(final int record) {
+        Preconditions.checkElementIndex(record, size);
+        return lengths[record];
+    }
+
+    /**
+     * Find the record holding a file.
+     *
+     * @param name The name of the file within the archive.
+     * @return The record, or -1 if the archive does not contain the file.
+     */
+    public int find(final String name) {
+        return slots[findSlot(normalize(name))] - 1;
+    }
+
+    public boolean contains(final String name) {
+        return find(name) != -1;
+    }
+
+    /**
+     * Open a file in the archive as an Iff.
+     *
+     * @param name The name of the file within the archive.
+     * @return An Iff positioned at the start of the file.
+     * @throws NoSuchFileException If the archive does not contain the file.
+     * @throws IOException         If the file could not be inflated.
+     */
+    public Iff open(final String name) throws IOException {
+        final int record = find(name);
+
+        if (record == -1)
+            throw new NoSuchFileException(name, fileName, null);
+
+        return open(record);
+    }
+
+    /**
+     * Open a record of the archive as an Iff.
+     */
+    public Iff open(final int record) throws IOException {
+        return new Iff(getName(record), read(record));
+    }
+
+    /**
+     * Read the content of a record of the archive.
+     *
+     * @return A read only view of a stored record, or the inflated bytes of a compressed record, in little endian
+     * order.
+     * @throws IOException If the record could not be inflated.
+     */
+    public ByteBuffer read(final int record) throws IOException {
+        Preconditions.checkElementIndex(record, size);
+
+        if (compressors[record] == COMPRESSOR_NONE)
+            return slice(offsets[record], lengths[record]);
+
+        final IffMetrics metrics = Iff.getDefaultMetrics();
+        final long start = metrics != IffMetrics.NONE ? System.nanoTime() : 0;
+        final Inflation inflation = acquire();
+
+        try {
+            final byte[] bytes = new byte[lengths[record]];
+            inflation.inflate(arrayData != null ? arrayData : data,
+                    offsets[record],
+                    compressors[record],
+                    compressedLengths[record],
+                    bytes);
+
+            if (metrics != IffMetrics.NONE)
+                metrics.fileLoaded(names[record], bytes.length, System.nanoTime() - start);
+
+            return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        } finally {
+            release(inflation);
+        }
+    }
+
+    private ByteBuffer readBlock(final Inflation inflation,
+                                 final int offset,
+                                 final int compressor,
+                                 final int length,
+                                 final int uncompressedLength) throws IOException {
+        if (compressor == COMPRESSOR_NONE) {
+            if (offset < 0 || uncompressedLength < 0 || (long) offset + uncompressedLength > data.remaining())
+                throw new IOException(String.format("Table of contents overruns archive [%s].", fileName));
+
+            return slice(offset, uncompressedLength);
+        }
+
+        if (offset < 0 || length < 0 || (long) offset + length > data.remaining())
+            throw new IOException(String.format("Table of contents overruns archive [%s].", fileName));
+
+        final byte[] bytes = new byte[uncompressedLength];
+        inflation.inflate(arrayData != null ? arrayData : data, offset, compressor, length, bytes);
+
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private ByteBuffer slice(final int offset, final int length) {
+        final ByteBuffer buffer = data.duplicate();
+        buffer.position(offset);
+        buffer.limit(offset + length);
+
+        return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private int storedLength(final int record) {
+        return compressors[record] == COMPRESSOR_NONE ? lengths[record] : compressedLengths[record];
+    }
+
+    private int findSlot(final String name) {
+        int hash = name.hashCode();
+        hash ^= hash >>> 16;
+
+        int slot = hash & mask;
+
+        while (slots[slot] != 0 && !names[slots[slot] - 1].equals(name))
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private Inflation acquire() {
+        final Inflation inflation = inflations.poll();
+        return inflation != null ? inflation : new Inflation();
+    }
+
+    private void release(final Inflation inflation) {
+        inflations.offer(inflation);
+    }
+
+    private static String readName(final ByteBuffer nameBlock, final int offset) throws IOException {
+        if (offset < 0 || offset >= nameBlock.limit())
+            throw new IOException("File name is outside the name block.");
+
+        int end = offset;
+
+        while (end < nameBlock.limit() && nameBlock.get(end) != 0)
+            ++end;
+
+        return IffStringPool.decode(nameBlock, offset, end - offset);
+    }
+
+    /**
+     * @return The name in lower case with forward slashes, the form in which names are matched.
+     */
+    static String normalize(final String name) {
+        return name.replace('\\', '/').toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The reusable state for inflating records; an inflater and a buffer for the compressed bytes, which have to be
+     * copied out of a mapping since the inflater reads from arrays.
+     */
+    private static final class Inflation {
+        private final Inflater inflater = new Inflater();
+        private byte[] input = new byte[8192];
+
+        /**
+         * Inflate a zlib stream into an array which it must fill exactly.
+         *
+         * @param data The archive, read from its array directly if it has one.
+         */
+        private void inflate(final ByteBuffer data,
+                             final int offset,
+                             final int compressor,
+                             final int length,
+                             final byte[] output) throws IOException {
+            if (compressor != COMPRESSOR_ZLIB)
+                throw new IOException(String.format("Unsupported compressor [%d].", compressor));
+
+            final byte[] bytes;
+            final int bytesOffset;
+
+            if (data.hasArray()) {
+                bytes = data.array();
+                bytesOffset = data.arrayOffset() + offset;
+            } else {
+                if (input.length < length)
+                    input = new byte[Math.max(length, input.length * 2)];
+
+                final ByteBuffer source = data.duplicate();
+                source.position(offset);
+                source.get(input, 0, length);
+
+                bytes = input;
+                bytesOffset = 0;
+            }
+
+            inflater.reset();
+            inflater.setInput(bytes, bytesOffset, length);
+
+            try {
+                int total = 0;
+
+                while (!inflater.finished()) {
+                    final int count = inflater.inflate(output, total, output.length - total);
+
+                    if (count == 0 && (total == output.length || inflater.needsInput() || inflater.needsDictionary()))
+                        break;
+
+                    total += count;
+                }
+
+                if (!inflater.finished() || total != output.length)
+                    throw new IOException("Record could not be inflated.");
+            } catch (final DataFormatException e) {
+                throw new IOException("Record could not be inflated.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class IffBufferPoolTest {
+    private static final int ID_TEST = Iff.createChunkId("TEST");
+    private static final int ID_XXXX = Iff.createChunkId("XXXX");
+
+    @Test
+    public void shouldReuseReleasedBuffers() {
+        final IffBufferPool pool = IffBufferPool.heap();
+        final ByteBuffer buffer = pool.allocate(100);
+
+        Assert.assertEquals(128, buffer.capacity());
+
+        pool.release(buffer);
+        Assert.assertEquals(1, pool.getFreeCount());
+        Assert.assertSame(buffer, pool.allocate(65));
+        Assert.assertEquals(0, pool.getFreeCount());
+    }
+
+    @Test
+    public void shouldNotKeepForeignBuffers() {
+        final IffBufferPool pool = new IffBufferPool(false, 64, 1024, 1);
+
+        pool.release(ByteBuffer.allocateDirect(128));
+        pool.release(ByteBuffer.allocate(100));
+        pool.release(ByteBuffer.allocate(4096));
+        Assert.assertEquals(0, pool.getFreeCount());
+
+        pool.release(ByteBuffer.allocate(128));
+        pool.release(ByteBuffer.allocate(128));
+        Assert.assertEquals(1, pool.getFreeCount());
+    }
+
+    @Test
+    public void shouldBuildIffInPooledDirectBuffers() {
+        final IffBufferPool pool = IffBufferPool.direct();
+
+        for (int pass = 0; pass < 2; ++pass) {
+            final Iff iff = new Iff(16, pool);
+            iff.insertForm(ID_TEST);
+                iff.insertChunk(ID_XXXX);
+                    iff.insertChunkData(new int[]{1, 2, 3, 4, 5, 6, 7, 8});
+                    iff.insertChunkString("pooled");
+                iff.exitChunk(ID_XXXX);
+            iff.exitForm(ID_TEST);
+
+            final byte[] bytes = iff.getRawData();
+            Assert.assertEquals(12 + 8 + 32 + 7, bytes.length);
+
+            final Iff copy = new Iff("copy.iff", bytes);
+            copy.enterForm(ID_TEST);
+                copy.enterChunk(ID_XXXX);
+                    final int[] values = new int[8];
+                    copy.readInts(values, 0, values.length);
+                    Assert.assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7, 8}, values);
+                    Assert.assertEquals("pooled", copy.readString());
+                copy.exitChunk(ID_XXXX);
+            copy.exitForm(ID_TEST);
+
+            iff.release();
+        }
+
+        Assert.assertTrue(pool.getFreeCount() > 0);
+    }
+
+    @Test
+    public void shouldMoveGapInDirectBuffers() {
+        final byte[] expected = buildWithMidInserts(new Iff(16));
+        final byte[] actual = buildWithMidInserts(new Iff(16, IffAllocator.DIRECT));
+
+        Assert.assertArrayEquals(expected, actual);
+    }
+
+    /**
+     * Build chunks larger than the scratch space used to move overlapping data, then insert before and between them.
+     */
+    private static byte[] buildWithMidInserts(final Iff iff) {
+        final byte[] large = new byte[10000];
+
+        for (int index = 0; index < large.length; ++index)
+            large[index] = (byte) index;
+
+        iff.insertForm(ID_TEST);
+            for (int index = 0; index < 2; ++index) {
+                iff.insertChunk(ID_XXXX);
+                    iff.insertChunkData(large, 0, large.length);
+                iff.exitChunk(ID_XXXX);
+            }
+
+            iff.goToTopOfForm();
+            iff.insertChunk(ID_TEST);
+                iff.insertChunkData(1);
+            iff.exitChunk(ID_TEST);
+
+            iff.goForward(1);
+            iff.insertChunk(ID_TEST);
+                iff.insertChunkData(2);
+            iff.exitChunk(ID_TEST);
+        iff.exitForm(ID_TEST);
+
+        final ByteBuffer data = iff.getSharedData();
+        final byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+
+        return bytes;
+    }
+
+    @Test
+    public void shouldNotExposeDataOfEarlierUse() {
+        final IffBufferPool pool = IffBufferPool.heap();
+
+        final Iff secret = new Iff(16, pool);
+        secret.insertChunk(ID_XXXX);
+            secret.insertChunkString("password=hunter2");
+        secret.exitChunk(ID_XXXX);
+        secret.release();
+
+        final Iff iff = new Iff(16, pool);
+        iff.insertChunk(ID_TEST);
+            iff.insertChunkData(7);
+        iff.exitChunk(ID_TEST);
+
+        final String raw = new String(iff.getRawData(), StandardCharsets.ISO_8859_1);
+        Assert.assertFalse(raw.contains("hunter2"));
+    }
+}
@@ -0,0 +1,105 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class IffBundleTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+    private static final int ID_DERV = Iff.createChunkId("DERV");
+    private static final int ID_XXXX = Iff.createChunkId("XXXX");
+
+    private final String resourcesPath = IffBundleTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldFindAndOpenFiles() throws IOException {
+        final Path directory = Files.createTempDirectory("iff");
+        final Path bundlePath = directory.resolve("templates.bundle");
+
+        new IffBundleWriter()
+                .add("object/creature/player/shared_human_male.iff", Paths.get(resourcesPath, "human_male.iff"))
+                .add("object/empty.iff", new byte[0])
+                .add("object/odd.iff", new byte[]{1, 2, 3})
+                .write(bundlePath);
+
+        final IffBundle bundle = IffBundle.open(bundlePath);
+        Assert.assertEquals(3, bundle.size());
+        Assert.assertEquals(-1, bundle.find("object/missing.iff"));
+
+        final int entry = bundle.find("Object\\Creature\\Player\\shared_human_male.iff");
+        Assert.assertEquals("object/creature/player/shared_human_male.iff", bundle.getName(entry));
+        Assert.assertEquals(testBytes.length, bundle.getLength(entry));
+
+        final Iff iff = bundle.open("object/creature/player/shared_human_male.iff");
+        iff.enterForm(ID_SCOT);
+            iff.enterForm(ID_DERV);
+                iff.enterChunk(ID_XXXX);
+                    Assert.assertEquals("object/creature/player/shared_human_male.iff", iff.readString());
+                iff.exitChunk(ID_XXXX);
+            iff.exitForm(ID_DERV);
+        iff.exitForm(ID_SCOT);
+
+        Assert.assertEquals(0, bundle.read(bundle.find("object/empty.iff")).remaining());
+        Assert.assertEquals(3, bundle.read(bundle.find("object/odd.iff")).get(2));
+    }
+
+    @Test
+    public void shouldAlignPayloads() throws IOException {
+        final IffBundleWriter writer = new IffBundleWriter();
+
+        for (int index = 0; index < 50; ++index)
+            writer.add(String.format("file%d.iff", index), new byte[index]);
+
+        final Path bundlePath = Files.createTempDirectory("iff").resolve("aligned.bundle");
+        writer.write(bundlePath);
+
+        final byte[] bytes = Files.readAllBytes(bundlePath);
+        final IffBundle bundle = IffBundle.of("aligned.bundle", ByteBuffer.wrap(bytes));
+
+        Assert.assertEquals(0, bytes.length % IffBundle.ALIGNMENT);
+
+        for (int index = 0; index < 50; ++index) {
+            final int entry = bundle.find(String.format("file%d.iff", index));
+            final int offset = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+                    .getInt(IffBundle.HEADER_SIZE + entry * IffBundle.ENTRY_SIZE + 8);
+
+            Assert.assertEquals(0, offset % IffBundle.ALIGNMENT);
+            Assert.assertEquals(index, bundle.getLength(entry));
+        }
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void shouldRejectMissingFiles() throws IOException {
+        final Path bundlePath = Files.createTempDirectory("iff").resolve("empty.bundle");
+        new IffBundleWriter().write(bundlePath);
+
+        IffBundle.open(bundlePath).open("object/missing.iff");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDuplicateNames() {
+        new IffBundleWriter()
+                .add("object/file.iff", new byte[0])
+                .add("OBJECT\\file.iff", new byte[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNamesOutsideLatin1() {
+        new IffBundleWriter().add("object/\u0444\u0430\u0439\u043b.iff", new byte[0]);
+    }
+}
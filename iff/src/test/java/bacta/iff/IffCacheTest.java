@@ -0,0 +1,96 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IffCacheTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+
+    private final String resourcesPath = IffCacheTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldLoadOnceForConcurrentRequests() throws InterruptedException {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final IffCache cache = new IffCache(1 << 20, name -> {
+            loads.incrementAndGet();
+            return IffImage.of(name, testBytes);
+        });
+
+        final AtomicInteger matches = new AtomicInteger();
+        final Thread[] threads = new Thread[8];
+
+        for (int index = 0; index < threads.length; ++index) {
+            threads[index] = new Thread(() -> {
+                try {
+                    start.await();
+
+                    if (cache.get("human_male.iff").getCurrentName() == ID_SCOT)
+                        matches.incrementAndGet();
+                } catch (final InterruptedException | IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads[index].start();
+        }
+
+        start.countDown();
+
+        for (final Thread thread : threads)
+            thread.join();
+
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(threads.length, matches.get());
+        Assert.assertEquals(threads.length, cache.getStats().requestCount());
+        Assert.assertEquals(1, cache.getStats().loadCount());
+    }
+
+    @Test
+    public void shouldEvictWhenOverBudget() throws IOException {
+        final IffCache cache = new IffCache(testBytes.length * 2, name -> IffImage.of(name, testBytes));
+
+        for (int index = 0; index < 8; ++index)
+            cache.get("file" + index + ".iff");
+
+        Assert.assertTrue(cache.size() <= 2);
+        Assert.assertTrue(cache.getStats().evictionCount() >= 6);
+    }
+
+    @Test
+    public void shouldHoldFilesLargerThanAShareOfTheBudget() throws IOException {
+        final byte[] large = new byte[1500];
+        final IffCache cache = new IffCache(4000, name -> IffImage.of(name, large));
+
+        cache.get("large.iff");
+        Assert.assertEquals(1, cache.size());
+        Assert.assertNotNull(cache.getIfPresent("large.iff"));
+
+        cache.get("large1.iff");
+        cache.get("large2.iff");
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getStats().evictionCount());
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void shouldPassOnLoadFailure() throws IOException {
+        new IffCache(1024, name -> {
+            throw new NoSuchFileException(name);
+        }).get("missing.iff");
+    }
+}
@@ -0,0 +1,130 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class IffCodecRegistryTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+    private static final int ID_STOT = Iff.createChunkId("STOT");
+    private static final int ID_SHOT = Iff.createChunkId("SHOT");
+    private static final int ID_0007 = Iff.createChunkId("0007");
+    private static final int ID_0012 = Iff.createChunkId("0012");
+    private static final int ID_PCNT = Iff.createChunkId("PCNT");
+
+    private final String resourcesPath = IffCodecRegistryTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldReadDerivedTemplates() {
+        final IffCodecRegistry<Template> registry = createRegistry();
+        final Template template = registry.read(new Iff("human_male.iff", testBytes));
+
+        Assert.assertEquals(ID_SCOT, template.type);
+        Assert.assertEquals("object/creature/player/shared_human_male.iff", template.baseTemplate);
+        Assert.assertEquals(ID_STOT, template.base.type);
+        Assert.assertEquals(template.baseTemplate, template.base.baseTemplate);
+        Assert.assertEquals(ID_SHOT, template.base.base.type);
+        Assert.assertNull(template.base.base.base);
+    }
+
+    @Test
+    public void shouldWriteWithCodec() {
+        final IffCodecRegistry<Template> registry = createRegistry();
+        final Iff iff = new Iff(64);
+
+        registry.write(iff, ID_SHOT, ID_0007, "object/base.iff", new Template(ID_SHOT, 3, null, null));
+        iff.goToTopOfForm();
+
+        final Template template = registry.read(iff);
+        Assert.assertEquals(ID_SHOT, template.type);
+        Assert.assertEquals("object/base.iff", template.baseTemplate);
+        Assert.assertEquals(3, template.propertyCount);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownVersion() {
+        IffCodecRegistry.<Template>builder()
+                .register(ID_SCOT, ID_0007, new TemplateCodec(ID_SCOT, ID_0007, null))
+                .build()
+                .read(new Iff("human_male.iff", testBytes));
+    }
+
+    private static IffCodecRegistry<Template> createRegistry() {
+        final IffCodecRegistry.Builder<Template> builder = IffCodecRegistry.builder();
+        final AtomicReference<IffCodecRegistry<Template>> registry = new AtomicReference<>();
+
+        builder.register(ID_SCOT, ID_0012, new TemplateCodec(ID_SCOT, ID_0012, registry));
+        builder.register(ID_STOT, ID_0007, new TemplateCodec(ID_STOT, ID_0007, registry));
+        builder.register(ID_SHOT, ID_0007, new TemplateCodec(ID_SHOT, ID_0007, registry));
+
+        registry.set(builder.build());
+        return registry.get();
+    }
+
+    private static final class Template {
+        private final int type;
+        private final int propertyCount;
+        private final String baseTemplate;
+        private final Template base;
+
+        private Template(final int type, final int propertyCount, final String baseTemplate, final Template base) {
+            this.type = type;
+            this.propertyCount = propertyCount;
+            this.baseTemplate = baseTemplate;
+            this.base = base;
+        }
+    }
+
+    /**
+     * Reads the property count of a template, then its base template if it has one.
+     */
+    private static final class TemplateCodec implements IffCodec<Template> {
+        private final int type;
+        private final int version;
+        private final AtomicReference<IffCodecRegistry<Template>> registry;
+
+        private TemplateCodec(final int type, final int version, final AtomicReference<IffCodecRegistry<Template>> registry) {
+            this.type = type;
+            this.version = version;
+            this.registry = registry;
+        }
+
+        @Override
+        public Template read(final Iff iff) {
+            return read(iff, null);
+        }
+
+        @Override
+        public Template read(final Iff iff, final String baseTemplate) {
+            iff.enterForm(version);
+            iff.enterChunk(ID_PCNT);
+            final int propertyCount = iff.readInt();
+            iff.exitChunk(ID_PCNT);
+            iff.exitForm(version);
+
+            final Template base = iff.isAtEndOfForm() ? null : registry.get().read(iff);
+            return new Template(type, propertyCount, baseTemplate, base);
+        }
+
+        @Override
+        public void write(final Iff iff, final Template value) {
+            iff.insertForm(version);
+            iff.insertChunk(ID_PCNT);
+            iff.insertChunkData(value.propertyCount);
+            iff.exitChunk(ID_PCNT);
+            iff.exitForm(version);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class IffFileSystemTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+    private static final int ID_TEST = Iff.createChunkId("TEST");
+    private static final int ID_DATA = Iff.createChunkId("DATA");
+
+    private final String resourcesPath = IffFileSystemTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldPreferLaterSources() throws IOException {
+        final Path directory = Files.createTempDirectory("test");
+        final Path file = directory.resolve("object").resolve("creature").resolve("player").resolve("human_male.iff");
+
+        try {
+            final IffWriter writer = new IffWriter();
+            writer.insertForm(ID_TEST);
+            writer.insertChunk(ID_DATA);
+            writer.insertChunkData(1);
+            writer.exitChunk(ID_DATA);
+            writer.exitForm(ID_TEST);
+
+            Files.createDirectories(file.getParent());
+            writer.write(file);
+
+            final IffFileSystem fileSystem = IffFileSystem.builder()
+                    .addArchive(TreArchive.of("test.tre", ByteBuffer.wrap(TreArchiveTest.createArchive(testBytes, false))))
+                    .addDirectory(directory)
+                    .build();
+
+            Assert.assertEquals(2, fileSystem.size());
+            Assert.assertEquals(ID_TEST, fileSystem.open("Object/Creature/Player/Human_Male.iff").getCurrentName());
+            Assert.assertEquals(ID_SCOT, fileSystem.open("object/creature/player/shared_human_male.iff").getCurrentName());
+            Assert.assertFalse(fileSystem.contains("object/creature/player/human_female.iff"));
+        } finally {
+            Files.delete(file);
+            Files.delete(file.getParent());
+            Files.delete(file.getParent().getParent());
+            Files.delete(file.getParent().getParent().getParent());
+            Files.delete(directory);
+        }
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void shouldNotOpenMissingFile() throws IOException {
+        IffFileSystem.builder().build().open("missing.iff");
+    }
+}
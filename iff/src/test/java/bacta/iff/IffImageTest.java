@@ -0,0 +1,77 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IffImageTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+    private static final int ID_TEST = Iff.createChunkId("TEST");
+
+    private final String resourcesPath = IffImageTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldReadFromCursorsOnManyThreads() throws InterruptedException {
+        final IffImage image = IffImage.of("human_male.iff", testBytes).withIndex();
+        final IffQuery query = IffQuery.compile("SCOT/0012/PCNT");
+        final AtomicInteger matches = new AtomicInteger();
+        final Thread[] threads = new Thread[4];
+
+        for (int index = 0; index < threads.length; ++index) {
+            threads[index] = new Thread(() -> {
+                for (int count = 0; count < 1000; ++count) {
+                    final Iff iff = image.newCursor();
+
+                    if (query.find(iff) && iff.readInt() == 0)
+                        matches.incrementAndGet();
+                }
+            });
+            threads[index].start();
+        }
+
+        for (final Thread thread : threads)
+            thread.join();
+
+        Assert.assertEquals(threads.length * 1000, matches.get());
+    }
+
+    @Test
+    public void shouldNotChangeImageWhenCursorWrites() {
+        final IffImage image = IffImage.of("human_male.iff", testBytes);
+        final Iff writer = image.newCursor();
+
+        writer.insertForm(ID_TEST, false);
+
+        Assert.assertEquals(ID_TEST, writer.getCurrentName());
+        Assert.assertEquals(ID_SCOT, image.newCursor().getCurrentName());
+        Assert.assertEquals(testBytes.length, image.getLength());
+        Assert.assertNotSame(testBytes, writer.getSharedArrayData().array());
+    }
+
+    @Test
+    public void shouldDecodeStringsFromImageArray() {
+        final IffImage image = IffImage.of("human_male.iff", testBytes);
+        final Iff cursor = image.newCursor();
+
+        Assert.assertTrue(image.getData().isReadOnly());
+        Assert.assertSame(testBytes, cursor.getSharedArrayData().array());
+        Assert.assertSame(testBytes, IffImage.of(cursor).newCursor().getSharedArrayData().array());
+
+        cursor.enterForm();
+        cursor.enterForm();
+        cursor.enterChunk();
+        Assert.assertEquals("object/creature/player/shared_human_male.iff", cursor.readString());
+    }
+}
@@ -0,0 +1,89 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class IffNodeTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+    private static final int ID_STOT = Iff.createChunkId("STOT");
+    private static final int ID_SHOT = Iff.createChunkId("SHOT");
+    private static final int ID_0007 = Iff.createChunkId("0007");
+    private static final int ID_0012 = Iff.createChunkId("0012");
+    private static final int ID_PCNT = Iff.createChunkId("PCNT");
+    private static final int ID_TEST = Iff.createChunkId("TEST");
+
+    private final String resourcesPath = IffNodeTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldNavigateLazily() {
+        final IffNode root = IffNode.root(IffImage.of("human_male.iff", testBytes));
+        final IffNode scot = root.getChild(0);
+
+        Assert.assertEquals(1, root.getChildCount());
+        Assert.assertTrue(scot.isForm());
+        Assert.assertEquals(ID_SCOT, scot.getName());
+        Assert.assertEquals(3, scot.getChildCount());
+
+        final IffNode pcnt = scot.findChild(ID_0012).findChild(ID_PCNT);
+        Assert.assertTrue(pcnt.isChunk());
+        Assert.assertEquals(4, pcnt.getLength());
+        Assert.assertEquals(0, pcnt.getInt(0));
+
+        final IffNode shot = scot.findChild(ID_STOT).findChild(ID_SHOT);
+        Assert.assertNotNull(shot);
+        Assert.assertEquals(4, shot.findChild(ID_0007).findChild(ID_PCNT).slice().remaining());
+        Assert.assertNull(scot.findChild(ID_TEST));
+        Assert.assertSame(scot.getChildren().get(1), scot.getChild(1));
+    }
+
+    @Test
+    public void shouldDecodeChunkValues() {
+        final Iff iff = new Iff(64);
+        iff.insertForm(ID_TEST);
+        iff.insertChunk(ID_TEST);
+        iff.insertChunkData(7);
+        iff.insertChunkString("name");
+        iff.insertChunkData(1.5f);
+        iff.exitChunk(ID_TEST);
+        iff.exitForm(ID_TEST);
+
+        //The raw data has unused capacity after the form.
+        final byte[] data = iff.getRawData();
+        final int length = 8 + ByteBuffer.wrap(data).getInt(4);
+
+        final IffNode chunk = IffNode.root(IffImage.of("test.iff", Arrays.copyOf(data, length)))
+                .getChild(0)
+                .getChild(0);
+
+        Assert.assertEquals(7, chunk.getInt(0));
+        Assert.assertEquals("name", chunk.getString(4));
+        Assert.assertEquals(1.5f, chunk.getFloat(9), 0);
+
+        final Iff cursor = chunk.newCursor();
+        cursor.enterChunk(ID_TEST);
+        Assert.assertEquals(7, cursor.readInt());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldRejectReadsPastChunk() {
+        IffNode.root(IffImage.of("human_male.iff", testBytes))
+                .getChild(0)
+                .findChild(ID_0012)
+                .findChild(ID_PCNT)
+                .getInt(2);
+    }
+}
@@ -0,0 +1,77 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class IffParallelDecoderTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+
+    private final String resourcesPath = IffParallelDecoderTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldDecodeChildrenInOrder() {
+        final Iff iff = new Iff("human_male.iff", testBytes);
+        iff.enterForm(ID_SCOT);
+
+        final List<Integer> expected = new ArrayList<>();
+
+        while (!iff.isAtEndOfForm()) {
+            expected.add(iff.getCurrentLength());
+            iff.goForward(1);
+        }
+
+        iff.goToTopOfForm();
+        iff.goForward(1);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            final List<Integer> lengths = IffParallelDecoder.decodeChildren(iff, pool, child -> {
+                Assert.assertEquals(1, child.getNumberOfBlocks());
+                return child.getCurrentLength();
+            });
+
+            Assert.assertEquals(expected, lengths);
+        } finally {
+            pool.shutdown();
+        }
+
+        //The position within the form is unchanged.
+        Assert.assertEquals(expected.get(1).intValue(), iff.getCurrentLength());
+    }
+
+    @Test
+    public void shouldReturnToPositionWithIndex() {
+        final Iff iff = IffImage.of("human_male.iff", testBytes).withIndex().newCursor();
+        iff.enterForm(ID_SCOT);
+        iff.goForward(2);
+
+        final int length = iff.getCurrentLength();
+        final ForkJoinPool pool = new ForkJoinPool(2);
+
+        try {
+            IffParallelDecoder.decodeChildren(iff, pool, Iff::getCurrentLength);
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertEquals(length, iff.getCurrentLength());
+        iff.goForward(1);
+        Assert.assertTrue(iff.isAtEndOfForm());
+    }
+}
@@ -0,0 +1,114 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class IffPreloaderTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+
+    private final String resourcesPath = IffPreloaderTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldLoadAndParseFiles() throws IOException, ExecutionException, InterruptedException {
+        final Path directory = Files.createTempDirectory("iff");
+        final List<Path> paths = new ArrayList<>();
+
+        for (int index = 0; index < 32; ++index) {
+            final Path path = directory.resolve(index + ".iff");
+            Files.write(path, testBytes);
+            paths.add(path);
+        }
+
+        final ExecutorService parseExecutor = Executors.newFixedThreadPool(2);
+
+        try {
+            final IffPreloader preloader = new IffPreloader(4, parseExecutor);
+            final List<CompletableFuture<Integer>> futures = preloader.loadAll(paths, iff -> {
+                iff.enterForm(ID_SCOT);
+                return iff.getFileName().length();
+            });
+
+            for (int index = 0; index < futures.size(); ++index)
+                Assert.assertEquals(paths.get(index).toString().length(), (int) futures.get(index).get());
+
+            Assert.assertEquals(0, preloader.getInFlightCount());
+            Assert.assertEquals(0, preloader.getPendingCount());
+        } finally {
+            parseExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldFailWhenMetricsThrow() throws IOException, InterruptedException, TimeoutException {
+        final Path path = Files.createTempDirectory("iff").resolve("human_male.iff");
+        Files.write(path, testBytes);
+
+        Iff.setDefaultMetrics(new IffMetrics() {
+            @Override
+            public void fileLoaded(final String fileName, final long bytes, final long durationNanos) {
+                throw new IllegalStateException("metrics");
+            }
+        });
+
+        try {
+            final IffPreloader preloader = new IffPreloader(1, Runnable::run);
+            final CompletableFuture<Iff> future = preloader.load(path);
+
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                Assert.fail("Expected the load to fail.");
+            } catch (final ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+
+            Assert.assertEquals(0, preloader.getInFlightCount());
+        } finally {
+            Iff.setDefaultMetrics(IffMetrics.NONE);
+        }
+    }
+
+    @Test
+    public void shouldFailMissingFiles() throws IOException, InterruptedException {
+        final Path directory = Files.createTempDirectory("iff");
+        final List<Path> paths = new ArrayList<>();
+
+        for (int index = 0; index < 1000; ++index)
+            paths.add(directory.resolve(index + ".iff"));
+
+        final IffPreloader preloader = new IffPreloader(1, Runnable::run);
+        final List<CompletableFuture<Iff>> futures = preloader.loadAll(paths);
+
+        for (final CompletableFuture<Iff> future : futures) {
+            try {
+                future.get();
+                Assert.fail("Expected the load to fail.");
+            } catch (final ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof NoSuchFileException);
+            }
+        }
+
+        Assert.assertEquals(0, preloader.getInFlightCount());
+    }
+}
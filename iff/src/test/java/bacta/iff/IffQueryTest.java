@@ -0,0 +1,60 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class IffQueryTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+
+    private final String resourcesPath = IffQueryTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldFindChunk() {
+        final IffQuery query = IffQuery.compile("SCOT/0012/PCNT");
+        final Iff iff = new Iff("human_male.iff", testBytes);
+
+        Assert.assertTrue(query.find(iff));
+        Assert.assertEquals(0, iff.readInt());
+        query.exit(iff);
+        Assert.assertEquals(0, iff.getStackDepth());
+    }
+
+    @Test
+    public void shouldVisitWildcardMatches() {
+        final IffQuery query = IffQuery.compile("STOT/*/DERV/XXXX");
+        final Iff iff = new Iff("human_male.iff", testBytes);
+        iff.buildIndex();
+        iff.enterForm(ID_SCOT);
+
+        final int count = query.forEach(iff, visited ->
+                Assert.assertEquals("object/creature/player/shared_human_male.iff", visited.readString()));
+
+        Assert.assertEquals(1, count);
+        Assert.assertEquals(1, iff.getStackDepth());
+    }
+
+    @Test
+    public void shouldNotFindMissingChunk() {
+        final Iff iff = new Iff("human_male.iff", testBytes);
+
+        Assert.assertFalse(IffQuery.compile("SCOT/0012/XXXX").find(iff));
+        Assert.assertEquals(0, iff.getStackDepth());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidSegment() {
+        IffQuery.compile("SCOT//PCNT");
+    }
+}
@@ -0,0 +1,68 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class IffStatisticsTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+    private static final int ID_0012 = Iff.createChunkId("0012");
+    private static final int ID_PCNT = Iff.createChunkId("PCNT");
+    private static final int ID_STOT = Iff.createChunkId("STOT");
+    private static final int ID_TEST = Iff.createChunkId("TEST");
+    private static final int ID_DATA = Iff.createChunkId("DATA");
+
+    private final String resourcesPath = IffStatisticsTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldCountReads() {
+        final IffStatistics statistics = new IffStatistics();
+        final Iff iff = new Iff("human_male.iff", testBytes);
+        iff.setMetrics(statistics);
+
+        iff.enterForm(ID_SCOT);
+        iff.seekForm(ID_0012);
+        iff.enterForm(ID_0012);
+        iff.enterChunk(ID_PCNT);
+        iff.readInt();
+        iff.exitChunk(ID_PCNT);
+        iff.exitForm(ID_0012);
+        iff.seekForm(ID_STOT);
+
+        Assert.assertEquals(2, statistics.getFormsEntered());
+        Assert.assertEquals(1, statistics.getChunksEntered());
+        Assert.assertEquals(4, statistics.getBytesRead());
+        Assert.assertEquals(2, statistics.getSeeks());
+        Assert.assertEquals(3, statistics.getSeekSteps());
+    }
+
+    @Test
+    public void shouldCountResizes() {
+        final IffStatistics statistics = new IffStatistics();
+        final Iff iff = new Iff(8);
+        iff.setMetrics(statistics);
+
+        iff.insertForm(ID_TEST);
+        iff.insertChunk(ID_DATA);
+
+        for (int index = 0; index < 64; ++index)
+            iff.insertChunkData(index);
+
+        iff.exitChunk(ID_DATA);
+        iff.exitForm(ID_TEST);
+
+        Assert.assertTrue(statistics.getResizes() > 0);
+        Assert.assertTrue(statistics.getBytesMoved() > 0);
+    }
+}
@@ -0,0 +1,83 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class IffStreamReaderTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+    private static final int ID_DERV = Iff.createChunkId("DERV");
+    private static final int ID_XXXX = Iff.createChunkId("XXXX");
+    private static final int ID_PCNT = Iff.createChunkId("PCNT");
+    private static final int ID_STOT = Iff.createChunkId("STOT");
+
+    private final String resourcesPath = IffStreamReaderTest.class.getResource("/").getPath();
+
+    @Test
+    public void shouldStreamEvents() throws IOException {
+        try (final IffStreamReader reader = IffStreamReader.open(Paths.get(resourcesPath, "human_male.iff"))) {
+            Assert.assertEquals(IffStreamReader.Event.START_FORM, reader.nextEvent());
+            Assert.assertEquals(ID_SCOT, reader.getName());
+            Assert.assertEquals(IffStreamReader.Event.START_FORM, reader.nextEvent());
+            Assert.assertEquals(ID_DERV, reader.getName());
+            Assert.assertEquals(IffStreamReader.Event.START_CHUNK, reader.nextEvent());
+            Assert.assertEquals(ID_XXXX, reader.getName());
+            Assert.assertEquals("object/creature/player/shared_human_male.iff", reader.readString());
+            Assert.assertEquals(IffStreamReader.Event.END, reader.nextEvent());
+            Assert.assertEquals(ID_XXXX, reader.getName());
+            Assert.assertEquals(IffStreamReader.Event.END, reader.nextEvent());
+            Assert.assertEquals(ID_DERV, reader.getName());
+
+            Assert.assertEquals(IffStreamReader.Event.START_FORM, reader.nextEvent());
+            Assert.assertEquals(IffStreamReader.Event.START_CHUNK, reader.nextEvent());
+            Assert.assertEquals(ID_PCNT, reader.getName());
+            Assert.assertEquals(0, reader.readInt());
+            Assert.assertEquals(IffStreamReader.Event.END, reader.nextEvent());
+            Assert.assertEquals(IffStreamReader.Event.END, reader.nextEvent());
+
+            Assert.assertEquals(IffStreamReader.Event.START_FORM, reader.nextEvent());
+            Assert.assertEquals(ID_STOT, reader.getName());
+            reader.skip();
+            Assert.assertEquals(IffStreamReader.Event.END, reader.nextEvent());
+            Assert.assertEquals(ID_STOT, reader.getName());
+
+            Assert.assertEquals(IffStreamReader.Event.END, reader.nextEvent());
+            Assert.assertEquals(ID_SCOT, reader.getName());
+            Assert.assertEquals(IffStreamReader.Event.END_DOCUMENT, reader.nextEvent());
+        }
+    }
+
+    @Test
+    public void shouldStreamThroughSmallBuffer() throws IOException {
+        final byte[] bytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+        final IffStreamReader reader = new IffStreamReader(Channels.newChannel(new ByteArrayInputStream(bytes)), 12);
+
+        int chunks = 0;
+        int strings = 0;
+        IffStreamReader.Event event;
+
+        while ((event = reader.nextEvent()) != IffStreamReader.Event.END_DOCUMENT) {
+            if (event == IffStreamReader.Event.START_CHUNK) {
+                ++chunks;
+
+                if (reader.getName() == ID_XXXX) {
+                    Assert.assertEquals("object/creature/player/shared_human_male.iff", reader.readString());
+                    ++strings;
+                } else {
+                    final ByteBuffer payload = ByteBuffer.allocate(16);
+                    Assert.assertEquals(4, reader.read(payload));
+                }
+            }
+        }
+
+        Assert.assertEquals(6, chunks);
+        Assert.assertEquals(3, strings);
+        Assert.assertEquals(0, reader.getDepth());
+    }
+}
@@ -0,0 +1,454 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Created by crush on 12/17/2014.
+ */
+public class IffTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+    private static final int ID_DERV = Iff.createChunkId("DERV");
+    private static final int ID_XXXX = Iff.createChunkId("XXXX");
+    private static final int ID_0012 = Iff.createChunkId("0012");
+    private static final int ID_PCNT = Iff.createChunkId("PCNT");
+    private static final int ID_STOT = Iff.createChunkId("STOT");
+    private static final int ID_0007 = Iff.createChunkId("0007");
+    private static final int ID_SHOT = Iff.createChunkId("SHOT");
+
+    private static final int ID_TEST = Iff.createChunkId("TEST");
+
+    private byte[] testBytes;
+
+    private final String resourcesPath = IffTest.class.getResource("/").getPath();
+
+    @Before
+    public void before() {
+        try {
+            final RandomAccessFile file = new RandomAccessFile(resourcesPath + "human_male.iff", "r");
+            testBytes = new byte[(int) file.length()];
+            file.read(testBytes);
+            file.close();
+        } catch (FileNotFoundException ex) {
+            Assert.fail("Could not find test file in resources.");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            Assert.fail("Could not open test file for reading.");
+        }
+    }
+
+    @Test
+    public void shouldReadWithoutSpecifyingId() {
+        final Iff iff = new Iff("human_male.iff", testBytes);
+        iff.enterForm();
+            iff.enterForm();
+                iff.enterChunk();
+                    Assert.assertTrue("object/creature/player/shared_human_male.iff".equals(iff.readString()));
+                iff.exitChunk();
+            iff.exitForm();
+        iff.exitForm();
+    }
+
+    @Test
+    public void shouldReadDerivedFromTemplate() {
+        final Iff iff = new Iff("human_male.iff", testBytes);
+        iff.enterForm(ID_SCOT);
+            iff.enterForm(ID_DERV);
+                iff.enterChunk(ID_XXXX);
+                    Assert.assertTrue("object/creature/player/shared_human_male.iff".equals(iff.readString()));
+                iff.exitChunk(ID_XXXX);
+            iff.exitForm(ID_DERV);
+            iff.enterForm(ID_0012);
+                iff.enterChunk(ID_PCNT);
+                    Assert.assertEquals(0, iff.readInt());
+                iff.exitChunk(ID_PCNT);
+            iff.exitForm(ID_0012);
+        iff.exitForm(ID_SCOT);
+    }
+
+    @Test
+    public void shouldReadAllChunksWithoutException() {
+        final Iff iff = new Iff("human_male.iff", testBytes);
+        iff.enterForm(ID_SCOT);
+            iff.enterForm(ID_DERV);
+                iff.enterChunk(ID_XXXX);
+                iff.exitChunk(ID_XXXX);
+            iff.exitForm(ID_DERV);
+            iff.enterForm(ID_0012);
+                iff.enterChunk(ID_PCNT);
+                iff.exitChunk(ID_PCNT);
+            iff.exitForm(ID_0012);
+            iff.enterForm(ID_STOT);
+                iff.enterForm(ID_DERV);
+                    iff.enterChunk(ID_XXXX);
+                    iff.exitChunk(ID_XXXX);
+                iff.exitForm(ID_DERV);
+                iff.enterForm(ID_0007);
+                    iff.enterChunk(ID_PCNT);
+                    iff.exitChunk(ID_PCNT);
+                iff.exitForm(ID_0007);
+                iff.enterForm(ID_SHOT);
+                    iff.enterForm(ID_DERV);
+                        iff.enterChunk(ID_XXXX);
+                        iff.exitChunk(ID_XXXX);
+                    iff.exitForm(ID_DERV);
+                    iff.enterForm(ID_0007);
+                        iff.enterChunk(ID_PCNT);
+                        iff.exitChunk(ID_PCNT);
+                    iff.exitForm(ID_0007);
+                iff.exitForm(ID_SHOT);
+            iff.exitForm(ID_STOT);
+        iff.exitForm(ID_SCOT);
+    }
+
+    @Test
+    public void shouldReadMappedFile() throws IOException {
+        final Iff iff = Iff.open(Paths.get(resourcesPath, "human_male.iff"));
+        iff.enterForm(ID_SCOT);
+            iff.enterForm(ID_DERV);
+                iff.enterChunk(ID_XXXX);
+                    Assert.assertEquals("object/creature/player/shared_human_male.iff", iff.readString());
+                iff.exitChunk(ID_XXXX);
+            iff.exitForm(ID_DERV);
+            iff.enterForm(ID_0012);
+                iff.enterChunk(ID_PCNT);
+                    Assert.assertEquals(0, iff.readInt());
+                iff.exitChunk(ID_PCNT);
+            iff.exitForm(ID_0012);
+        iff.exitForm(ID_SCOT);
+    }
+
+    @Test
+    public void shouldCountBlocksLeft() {
+        final Iff iff = new Iff("human_male.iff", testBytes);
+        iff.enterForm(ID_SCOT);
+            Assert.assertEquals(3, iff.getNumberOfBlocksLeft());
+            iff.goForward(1);
+            Assert.assertEquals(2, iff.getNumberOfBlocksLeft());
+            Assert.assertEquals(3, iff.getNumberOfBlocks());
+            Assert.assertEquals(ID_0012, iff.getCurrentName());
+    }
+
+    @Test
+    public void shouldSeekWithIndex() {
+        final Iff iff = new Iff("human_male.iff", testBytes);
+        final IffIndex index = iff.buildIndex();
+        Assert.assertEquals(16, index.size());
+
+        iff.enterForm(ID_SCOT);
+            Assert.assertEquals(3, iff.getNumberOfBlocksLeft());
+            Assert.assertTrue(iff.seekForm(ID_STOT));
+            Assert.assertEquals(1, iff.getNumberOfBlocksLeft());
+            iff.enterForm(ID_STOT);
+                Assert.assertFalse(iff.seekChunk(ID_DERV));
+                Assert.assertTrue(iff.isAtEndOfForm());
+                iff.goToBlock(1);
+                iff.enterForm(ID_0007);
+                    iff.enterChunk(ID_PCNT);
+                        Assert.assertEquals(0, iff.readInt());
+                    iff.exitChunk(ID_PCNT);
+                iff.exitForm(ID_0007);
+                Assert.assertEquals(ID_SHOT, iff.getCurrentName());
+                Assert.assertEquals(1, iff.getNumberOfBlocksLeft());
+            iff.exitForm(ID_STOT);
+            Assert.assertTrue(iff.isAtEndOfForm());
+            iff.goToTopOfForm();
+            Assert.assertTrue(iff.seekForm(ID_0012));
+            iff.enterForm(ID_0012);
+                Assert.assertTrue(iff.seekChunk(ID_PCNT));
+            iff.exitForm(ID_0012);
+        iff.exitForm(ID_SCOT);
+    }
+
+    @Test
+    public void shouldInsertIntoExistingChunk() {
+        final Iff iff = new Iff("human_male.iff", testBytes.clone());
+        iff.enterForm(ID_SCOT);
+            iff.seekForm(ID_0012);
+            iff.enterForm(ID_0012);
+                iff.enterChunk(ID_PCNT);
+                    for (int index = 1; index <= 100; ++index)
+                        iff.insertChunkData(index);
+                iff.exitChunk(ID_PCNT);
+            iff.exitForm(ID_0012);
+        iff.exitForm(ID_SCOT);
+
+        iff.goToTopOfForm();
+        iff.enterForm(ID_SCOT);
+            iff.seekForm(ID_0012);
+            iff.enterForm(ID_0012);
+                iff.enterChunk(ID_PCNT);
+                    Assert.assertEquals(101, iff.getChunkLengthLeft(4));
+                    for (int index = 1; index <= 100; ++index)
+                        Assert.assertEquals(index, iff.readInt());
+                    Assert.assertEquals(0, iff.readInt());
+                iff.exitChunk(ID_PCNT);
+            iff.exitForm(ID_0012);
+            iff.enterForm(ID_STOT);
+                iff.enterForm(ID_DERV);
+                    iff.enterChunk(ID_XXXX);
+                        Assert.assertEquals("object/creature/player/shared_human_male.iff", iff.readString());
+                    iff.exitChunk(ID_XXXX);
+                iff.exitForm(ID_DERV);
+            iff.exitForm(ID_STOT);
+        iff.exitForm(ID_SCOT);
+    }
+
+    @Test
+    public void shouldInsertAllChunkDataTypes() {
+        final Iff iff = new Iff(16);
+        iff.insertForm(ID_TEST, true);
+            iff.insertChunk(ID_XXXX, true);
+                iff.insertChunkData(true);
+                iff.insertChunkData((byte) -3);
+                iff.insertChunkData((short) 1234);
+                iff.insertChunkData(Long.MIN_VALUE);
+                iff.insertChunkData(2.5f);
+                iff.insertChunkData(new int[]{1, 2, 3});
+                iff.insertChunkData(new float[]{0.5f, -0.5f}, 1, 1);
+                iff.insertChunkData(new short[]{7, 8});
+                iff.insertChunkData(new long[]{9L});
+                iff.insertChunkData(new byte[]{1, 2, 3, 4}, 1, 2);
+                iff.insertChunkData(ByteBuffer.wrap(new byte[]{5, 6}));
+            iff.exitChunk(ID_XXXX);
+        iff.exitForm(ID_TEST);
+
+        iff.goToTopOfForm();
+        iff.enterForm(ID_TEST);
+            iff.enterChunk(ID_XXXX);
+                Assert.assertTrue(iff.readBoolean());
+                Assert.assertEquals(-3, iff.readByte());
+                Assert.assertEquals(1234, iff.readShort());
+                Assert.assertEquals(Long.MIN_VALUE, iff.readLong());
+                Assert.assertEquals(2.5f, iff.readFloat(), 0f);
+                Assert.assertEquals(1, iff.readInt());
+                Assert.assertEquals(2, iff.readInt());
+                Assert.assertEquals(3, iff.readInt());
+                Assert.assertEquals(-0.5f, iff.readFloat(), 0f);
+                Assert.assertEquals(7, iff.readShort());
+                Assert.assertEquals(8, iff.readShort());
+                Assert.assertEquals(9L, iff.readLong());
+                Assert.assertEquals(2, iff.readByte());
+                Assert.assertEquals(3, iff.readByte());
+                Assert.assertEquals(5, iff.readByte());
+                Assert.assertEquals(6, iff.readByte());
+                Assert.assertEquals(0, iff.getChunkLengthLeft());
+            iff.exitChunk(ID_XXXX);
+        iff.exitForm(ID_TEST);
+    }
+
+    @Test
+    public void shouldReadChunkDataInBulk() {
+        final IffWriter writer = new IffWriter();
+        writer.insertForm(ID_TEST);
+            writer.insertChunk(ID_XXXX);
+                writer.insertChunkData(new int[]{1, 2, 3, 4});
+                writer.insertChunkData(new float[]{0.5f, 1.5f});
+                writer.insertChunkData(new short[]{5, 6});
+                writer.insertChunkData(new long[]{7L});
+            writer.exitChunk(ID_XXXX);
+        writer.exitForm(ID_TEST);
+
+        final Iff iff = writer.toIff("bulk.iff");
+        iff.enterForm(ID_TEST);
+            iff.enterChunk(ID_XXXX);
+                final int[] ints = new int[5];
+                iff.readInts(ints, 1, 4);
+                Assert.assertArrayEquals(new int[]{0, 1, 2, 3, 4}, ints);
+
+                final ByteBuffer slice = iff.sliceChunk();
+                Assert.assertTrue(slice.isReadOnly());
+                Assert.assertEquals(20, slice.remaining());
+                Assert.assertEquals(1.5f, slice.asFloatBuffer().get(1), 0f);
+
+                final float[] floats = new float[2];
+                iff.readFloats(floats, 0, 2);
+                Assert.assertArrayEquals(new float[]{0.5f, 1.5f}, floats, 0f);
+
+                final short[] shorts = new short[2];
+                iff.readShorts(shorts, 0, 2);
+                Assert.assertArrayEquals(new short[]{5, 6}, shorts);
+
+                final long[] longs = new long[1];
+                iff.readLongs(longs, 0, 1);
+                Assert.assertArrayEquals(new long[]{7L}, longs);
+                Assert.assertEquals(0, iff.getChunkLengthLeft());
+            iff.exitChunk(ID_XXXX);
+        iff.exitForm(ID_TEST);
+    }
+
+    @Test
+    public void shouldShareStringsThroughPool() {
+        final IffStringPool pool = new IffStringPool();
+        final String[] strings = new String[2];
+
+        for (int index = 0; index < strings.length; ++index) {
+            final Iff iff = new Iff("human_male.iff", testBytes);
+            iff.setStringPool(pool);
+            iff.enterForm(ID_SCOT);
+                iff.enterForm(ID_DERV);
+                    iff.enterChunk(ID_XXXX);
+                        strings[index] = iff.readString();
+                    iff.exitChunk(ID_XXXX);
+                iff.exitForm(ID_DERV);
+            iff.exitForm(ID_SCOT);
+        }
+
+        Assert.assertEquals("object/creature/player/shared_human_male.iff", strings[0]);
+        Assert.assertSame(strings[0], strings[1]);
+    }
+
+    @Test
+    public void shouldReadUnicode() {
+        final byte[] bytes = "Testing".getBytes(StandardCharsets.UTF_16LE);
+
+        final IffWriter writer = new IffWriter();
+        writer.insertChunk(ID_XXXX);
+            writer.insertChunkData(bytes.length);
+            writer.insertChunkData(bytes, 0, bytes.length);
+            writer.insertChunkData(7);
+        writer.exitChunk(ID_XXXX);
+
+        final Iff iff = writer.toIff("unicode.iff");
+        iff.enterChunk(ID_XXXX);
+            Assert.assertEquals("Testing", iff.readUnicode());
+            Assert.assertEquals(7, iff.readInt());
+        iff.exitChunk(ID_XXXX);
+    }
+
+    @Test
+    public void shouldWriteIff() {
+        final Iff iff = new Iff(1024);
+        iff.insertForm(ID_TEST, true);
+        {
+            iff.insertForm(ID_0007, true); //version 7 LOL
+            {
+                iff.insertChunk(ID_XXXX, true);
+                {
+                    iff.insertChunkData("Testing");
+                }
+                iff.exitChunk(ID_XXXX);
+                iff.insertChunk(ID_XXXX, true);
+                {
+                    iff.insertChunkData("Testing2");
+                }
+                iff.exitChunk(ID_XXXX);
+            }
+            iff.exitForm(ID_0007);
+        }
+        iff.exitForm(ID_TEST);
+    }
+
+    @Test
+    public void shouldWriteOnlyUsedBytes() throws IOException {
+        final Iff iff = new Iff(1024);
+        iff.insertChunk(ID_XXXX);
+            iff.insertChunkData(7);
+        iff.exitChunk(ID_XXXX);
+
+        final Path path = Files.createTempDirectory("iff").resolve("used.iff");
+        iff.write(path, true);
+
+        Assert.assertEquals(12, Files.size(path));
+        Assert.assertEquals(path.toString(), iff.getFileName());
+    }
+
+    @Test
+    public void shouldWriteWithPermissionsOfPlainWrite() throws IOException {
+        final Path directory = Files.createTempDirectory("iff");
+
+        if (Files.getFileAttributeView(directory, PosixFileAttributeView.class) == null)
+            return;
+
+        final Iff iff = new Iff(64);
+        iff.insertChunk(ID_XXXX);
+            iff.insertChunkData(7);
+        iff.exitChunk(ID_XXXX);
+
+        final Path plain = Files.write(directory.resolve("plain.iff"), new byte[0]);
+        final Path path = directory.resolve("written.iff");
+        iff.write(path, true);
+
+        Assert.assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(path));
+
+        final Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(path, permissions);
+        iff.write(path, false);
+
+        Assert.assertEquals(permissions, Files.getPosixFilePermissions(path));
+    }
+
+    @Test
+    public void shouldWriteBatch() throws IOException {
+        final Path directory = Files.createTempDirectory("iff");
+        final Map<Path, Iff> iffs = new LinkedHashMap<>();
+
+        for (int index = 0; index < 3; ++index) {
+            final Iff iff = new Iff(256);
+            iff.insertChunk(ID_XXXX);
+                iff.insertChunkData(index);
+            iff.exitChunk(ID_XXXX);
+
+            iffs.put(directory.resolve(index + ".iff"), iff);
+        }
+
+        Iff.write(iffs, false);
+
+        for (int index = 0; index < 3; ++index) {
+            final Iff iff = Iff.open(directory.resolve(index + ".iff"));
+            iff.enterChunk(ID_XXXX);
+                Assert.assertEquals(index, iff.readInt());
+            iff.exitChunk(ID_XXXX);
+        }
+
+        try (final Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(3, files.count());
+        }
+    }
+
+    @Test
+    public void shouldResetToNewData() {
+        final Iff writer = new Iff(64);
+        writer.insertChunk(ID_XXXX);
+            writer.insertChunkData(7);
+        writer.exitChunk(ID_XXXX);
+
+        final Iff iff = new Iff("human_male.iff", testBytes);
+        iff.enterForm(ID_SCOT);
+            iff.enterForm(ID_DERV);
+                iff.enterChunk(ID_XXXX);
+
+        iff.reset("small.iff", ByteBuffer.wrap(writer.getRawData(), 0, 12));
+        Assert.assertEquals("small.iff", iff.getFileName());
+        Assert.assertEquals(0, iff.getStackDepth());
+        iff.enterChunk(ID_XXXX);
+            Assert.assertEquals(7, iff.readInt());
+        iff.exitChunk(ID_XXXX);
+
+        iff.reset("human_male.iff", testBytes);
+        iff.enterForm(ID_SCOT);
+            iff.enterForm(ID_DERV);
+                iff.enterChunk(ID_XXXX);
+                    Assert.assertEquals("object/creature/player/shared_human_male.iff", iff.readString());
+                iff.exitChunk(ID_XXXX);
+            iff.exitForm(ID_DERV);
+        iff.exitForm(ID_SCOT);
+    }
+}
@@ -0,0 +1,97 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class IffWriterTest {
+    private static final int ID_TEST = Iff.createChunkId("TEST");
+    private static final int ID_0007 = Iff.createChunkId("0007");
+    private static final int ID_XXXX = Iff.createChunkId("XXXX");
+    private static final int ID_DATA = Iff.createChunkId("DATA");
+
+    @Test
+    public void shouldMatchIffInsertOutput() {
+        final Iff iff = new Iff(1024);
+        iff.insertForm(ID_TEST, true);
+            iff.insertForm(ID_0007, true);
+                iff.insertChunk(ID_XXXX, true);
+                    iff.insertChunkData("Testing");
+                    iff.insertChunkData(42);
+                iff.exitChunk(ID_XXXX);
+            iff.exitForm(ID_0007);
+        iff.exitForm(ID_TEST);
+
+        final IffWriter writer = new IffWriter(8);
+        writer.insertForm(ID_TEST);
+            writer.insertForm(ID_0007);
+                writer.insertChunk(ID_XXXX);
+                    writer.insertChunkData("Testing");
+                    writer.insertChunkData(42);
+                writer.exitChunk(ID_XXXX);
+            writer.exitForm(ID_0007);
+        writer.exitForm(ID_TEST);
+
+        final byte[] expected = iff.getRawData();
+        final int length = ByteBuffer.wrap(expected).getInt(4) + 8;
+
+        Assert.assertArrayEquals(Arrays.copyOf(expected, length), writer.toByteArray());
+    }
+
+    @Test
+    public void shouldReadBackWrittenValues() {
+        final IffWriter writer = new IffWriter();
+        writer.insertForm(ID_TEST);
+            writer.insertChunk(ID_DATA);
+                writer.insertChunkData(true);
+                writer.insertChunkData((byte) 7);
+                writer.insertChunkData((short) -2);
+                writer.insertChunkData(123456789L);
+                writer.insertChunkData(1.5f);
+                writer.insertChunkData("value");
+                writer.insertChunkData(new int[]{1, 2, 3}, 1, 2);
+                writer.insertChunkData(new float[]{0.25f});
+            writer.exitChunk(ID_DATA);
+        writer.exitForm(ID_TEST);
+
+        final Iff iff = writer.toIff("test.iff");
+        iff.enterForm(ID_TEST);
+            iff.enterChunk(ID_DATA);
+                Assert.assertTrue(iff.readBoolean());
+                Assert.assertEquals(7, iff.readByte());
+                Assert.assertEquals(-2, iff.readShort());
+                Assert.assertEquals(123456789L, iff.readLong());
+                Assert.assertEquals(1.5f, iff.readFloat(), 0f);
+                Assert.assertEquals("value", iff.readString());
+                Assert.assertEquals(2, iff.readInt());
+                Assert.assertEquals(3, iff.readInt());
+                Assert.assertEquals(0.25f, iff.readFloat(), 0f);
+                Assert.assertEquals(0, iff.getChunkLengthLeft());
+            iff.exitChunk(ID_DATA);
+        iff.exitForm(ID_TEST);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMismatchedExit() {
+        final IffWriter writer = new IffWriter();
+        writer.insertForm(ID_TEST);
+        writer.exitForm(ID_0007);
+    }
+
+    @Test
+    public void shouldRejectBadRangeBeforeGrowing() {
+        final IffWriter writer = new IffWriter();
+        writer.insertChunk(ID_XXXX);
+
+        try {
+            writer.insertChunkData(new byte[4], 2, 1 << 20);
+            Assert.fail("Expected the range to be rejected.");
+        } catch (final IndexOutOfBoundsException e) {
+            //Rejected by the range check rather than by the buffer, once it had already grown.
+            Assert.assertTrue(e.getMessage().contains("size (4)"));
+            Assert.assertEquals(8, writer.size());
+        }
+    }
+}
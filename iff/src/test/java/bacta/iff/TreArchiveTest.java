@@ -0,0 +1,145 @@
+package bacta.iff;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+public class TreArchiveTest {
+    private static final int ID_SCOT = Iff.createChunkId("SCOT");
+
+    private final String resourcesPath = TreArchiveTest.class.getResource("/").getPath();
+
+    private byte[] testBytes;
+
+    @Before
+    public void before() throws IOException {
+        testBytes = Files.readAllBytes(Paths.get(resourcesPath, "human_male.iff"));
+    }
+
+    @Test
+    public void shouldOpenStoredAndCompressedRecords() throws IOException {
+        final Path path = Files.createTempFile("test", ".tre");
+
+        try {
+            Files.write(path, createArchive(testBytes, true));
+
+            final TreArchive archive = TreArchive.open(path);
+            Assert.assertEquals(2, archive.size());
+
+            final Iff stored = archive.open("object/creature/player/shared_human_male.iff");
+            Assert.assertEquals(ID_SCOT, stored.getCurrentName());
+
+            final Iff inflated = archive.open("Object\\Creature\\Player\\Human_Male.iff");
+            Assert.assertEquals(ID_SCOT, inflated.getCurrentName());
+            Assert.assertArrayEquals(testBytes, Arrays.copyOf(inflated.getRawData(), testBytes.length));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void shouldReadUncompressedTableOfContents() throws IOException {
+        final TreArchive archive = TreArchive.of("test.tre", ByteBuffer.wrap(createArchive(testBytes, false)));
+
+        Assert.assertTrue(archive.contains("object/creature/player/human_male.iff"));
+        Assert.assertFalse(archive.contains("object/creature/player/human_female.iff"));
+        Assert.assertEquals(testBytes.length, archive.getLength(archive.find("object/creature/player/human_male.iff")));
+    }
+
+    @Test
+    public void shouldInflateRecordsRepeatedlyFromArray() throws IOException {
+        final TreArchive archive = TreArchive.of("test.tre", ByteBuffer.wrap(createArchive(testBytes, true)));
+        final int record = archive.find("object/creature/player/human_male.iff");
+
+        for (int index = 0; index < 3; ++index) {
+            final ByteBuffer data = archive.read(record);
+            final byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+
+            Assert.assertArrayEquals(testBytes, bytes);
+        }
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void shouldNotOpenMissingFile() throws IOException {
+        TreArchive.of("test.tre", ByteBuffer.wrap(createArchive(testBytes, false))).open("missing.iff");
+    }
+
+    /**
+     * Build an archive holding a file twice; once stored and once compressed.
+     */
+    static byte[] createArchive(final byte[] bytes, final boolean compressTableOfContents) {
+        final String[] names = {
+                "object/creature/player/shared_human_male.iff",
+                "object/creature/player/human_male.iff"
+        };
+
+        final byte[] compressed = deflate(bytes);
+        final ByteArrayOutputStream nameBlock = new ByteArrayOutputStream();
+        final ByteBuffer toc = ByteBuffer.allocate(names.length * 24).order(ByteOrder.LITTLE_ENDIAN);
+
+        int offset = 36;
+
+        for (int index = 0; index < names.length; ++index) {
+            final boolean compress = index == 1;
+
+            toc.putInt(0);
+            toc.putInt(bytes.length);
+            toc.putInt(offset);
+            toc.putInt(compress ? 2 : 0);
+            toc.putInt(compress ? compressed.length : 0);
+            toc.putInt(nameBlock.size());
+
+            final byte[] name = names[index].getBytes(StandardCharsets.ISO_8859_1);
+            nameBlock.write(name, 0, name.length);
+            nameBlock.write(0);
+
+            offset += compress ? compressed.length : bytes.length;
+        }
+
+        final byte[] tocBytes = compressTableOfContents ? deflate(toc.array()) : toc.array();
+        final byte[] nameBytes = nameBlock.toByteArray();
+
+        final ByteBuffer archive = ByteBuffer.allocate(offset + tocBytes.length + nameBytes.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        archive.put("EERT5000".getBytes(StandardCharsets.ISO_8859_1));
+        archive.putInt(names.length);
+        archive.putInt(offset);
+        archive.putInt(compressTableOfContents ? 2 : 0);
+        archive.putInt(tocBytes.length);
+        archive.putInt(0);
+        archive.putInt(nameBytes.length);
+        archive.putInt(nameBytes.length);
+        archive.put(bytes);
+        archive.put(compressed);
+        archive.put(tocBytes);
+        archive.put(nameBytes);
+
+        return archive.array();
+    }
+
+    private static byte[] deflate(final byte[] bytes) {
+        final Deflater deflater = new Deflater();
+        deflater.setInput(bytes);
+        deflater.finish();
+
+        final byte[] buffer = new byte[bytes.length + 64];
+        final int length = deflater.deflate(buffer);
+        deflater.end();
+
+        return Arrays.copyOf(buffer, length);
+    }
+}